@@ -2,12 +2,31 @@ package com.abn.recipes;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 @SpringBootApplication
 @EnableMongoRepositories
 public class AbnRecipesApplication {
 	public static void main(String[] args) {
-		SpringApplication.run(AbnRecipesApplication.class, args);
+		SpringApplication application = new SpringApplication(AbnRecipesApplication.class);
+		if (recordStartupSteps(args)) {
+			application.setApplicationStartup(new BufferingApplicationStartup(2048));
+		}
+		application.run(args);
+	}
+
+	/**
+	 * The startup recorder has to be set before the context exists, so only the command line,
+	 * system properties and environment variables can switch it on.
+	 */
+	static boolean recordStartupSteps(String[] args) {
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+		return environment.acceptsProfiles(Profiles.of("fast-startup"))
+				|| environment.getProperty("recipes.startup.record-steps", Boolean.class, false);
 	}
 }
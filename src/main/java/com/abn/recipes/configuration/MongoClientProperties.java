@@ -0,0 +1,65 @@
+package com.abn.recipes.configuration;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.TagSet;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo client settings. Options left unset keep the value from the connection string, or the
+ * driver default.
+ */
+@Data
+@ConfigurationProperties(prefix = "database.mongodb")
+public class MongoClientProperties {
+
+    private String url;
+
+    private String name;
+
+    /**
+     * Wire compressors in order of preference: zstd, snappy or zlib.
+     */
+    private List<String> compressors = new ArrayList<>();
+
+    private final Pool pool = new Pool();
+
+    private final Socket socket = new Socket();
+
+    private final Reads reads = new Reads();
+
+    @Data
+    public static class Pool {
+        private Integer minSize;
+        private Integer maxSize;
+        private Duration maxWaitTime;
+        private Duration maxConnectionIdleTime;
+    }
+
+    @Data
+    public static class Socket {
+        private Duration connectTimeout;
+        private Duration readTimeout;
+    }
+
+    /**
+     * Routing of the read-only queries. Writes and read-your-write checks always use the primary.
+     */
+    @Data
+    public static class Reads {
+        private String preference = "primary";
+        private Duration maxStaleness;
+
+        public ReadPreference readPreference() {
+            if (maxStaleness == null || "primary".equalsIgnoreCase(preference)) {
+                return ReadPreference.valueOf(preference);
+            }
+            return ReadPreference.valueOf(preference, List.<TagSet>of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+}
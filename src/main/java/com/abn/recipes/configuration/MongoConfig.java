@@ -1,43 +1,116 @@
 package com.abn.recipes.configuration;
 
+import com.abn.recipes.entity.Recipe;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
+@RequiredArgsConstructor
 @Configuration
+@EnableConfigurationProperties(MongoClientProperties.class)
 public class MongoConfig extends AbstractMongoClientConfiguration {
 
-    @Value("${database.mongodb.url}")
-    private String url;
-
-    @Value("${database.mongodb.name}")
-    private String databaseName;
+    private final MongoClientProperties properties;
 
     @Override
     protected String getDatabaseName() {
-        return databaseName;
+        return properties.getName();
     }
 
     @Override
     public MongoClient mongoClient() {
-        ConnectionString connectionString = new ConnectionString(url+databaseName);
-        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
-                .applyConnectionString(connectionString)
-                .build();
-        return MongoClients.create(mongoClientSettings);
+        ConnectionString connectionString = new ConnectionString(properties.getUrl() + properties.getName());
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(connectionString);
+
+        var pool = properties.getPool();
+        builder.applyToConnectionPoolSettings(settings -> {
+            if (pool.getMinSize() != null) {
+                settings.minSize(pool.getMinSize());
+            }
+            if (pool.getMaxSize() != null) {
+                settings.maxSize(pool.getMaxSize());
+            }
+            if (pool.getMaxWaitTime() != null) {
+                settings.maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (pool.getMaxConnectionIdleTime() != null) {
+                settings.maxConnectionIdleTime(pool.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+
+        var socket = properties.getSocket();
+        builder.applyToSocketSettings(settings -> {
+            if (socket.getConnectTimeout() != null) {
+                settings.connectTimeout((int) socket.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (socket.getReadTimeout() != null) {
+                settings.readTimeout((int) socket.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+
+        if (!properties.getCompressors().isEmpty()) {
+            builder.compressorList(properties.getCompressors().stream().map(MongoConfig::compressor).toList());
+        }
+
+        return MongoClients.create(builder.build());
     }
 
+    @Bean
+    @Primary
     @Override
-    public Collection getMappingBasePackages() {
-        return Collections.singleton("com.abn");
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory databaseFactory, MappingMongoConverter converter) {
+        return super.mongoTemplate(databaseFactory, converter);
+    }
+
+    /**
+     * Template for read-only queries that tolerate bounded staleness, routed with
+     * {@code database.mongodb.reads.*}. The primary template keeps the client's read preference.
+     */
+    @Bean
+    public MongoTemplate readMongoTemplate(MongoDatabaseFactory databaseFactory, MappingMongoConverter converter) {
+        MongoTemplate template = new MongoTemplate(databaseFactory, converter);
+        template.setReadPreference(properties.getReads().readPreference());
+        return template;
+    }
+
+    @Override
+    protected boolean autoIndexCreation() {
+        return true;
+    }
+
+    /**
+     * Entities are registered explicitly instead of scanning the classpath for {@code @Document}
+     * types at startup.
+     */
+    @Override
+    protected Set<Class<?>> getInitialEntitySet() {
+        return Set.of(Recipe.class);
+    }
+
+    private static MongoCompressor compressor(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            case "zlib" -> MongoCompressor.createZlibCompressor();
+            default -> throw new IllegalArgumentException("Unsupported Mongo compressor " + name);
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.abn.recipes.configuration;
+
+import com.abn.recipes.controller.RecipeController;
+import com.mongodb.client.MongoClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans on the request path stay eager under lazy initialization, so the first request
+     * does not pay for creating the Mongo client and the controller graph.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerRequestPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(MongoClient.class, RecipeController.class);
+    }
+
+    /**
+     * Used by the cds-archive Maven profile: the JVM dumps the loaded classes into the
+     * shared archive when the application exits after its first full startup.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "recipes.startup.exit-on-ready", havingValue = "true")
+    ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+        return event -> {
+            log.info("Application started in {} ms, exiting after class data sharing training run",
+                    event.getTimeTaken() == null ? "?" : event.getTimeTaken().toMillis());
+            System.exit(SpringApplication.exit(event.getApplicationContext(), () -> 0));
+        };
+    }
+}
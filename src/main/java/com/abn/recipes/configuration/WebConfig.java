@@ -0,0 +1,48 @@
+package com.abn.recipes.configuration;
+
+import com.abn.recipes.controller.limiter.RequestLimitInterceptor;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@RequiredArgsConstructor
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RequestLimitInterceptor requestLimitInterceptor;
+
+    @Value("${recipes.limits.enabled:true}")
+    private boolean limitsEnabled;
+
+    /**
+     * Boot's {@code HttpMessageConverters} puts converter beans ahead of the default CBOR/Smile
+     * converters of the same type, still after JSON, so JSON stays the default encoding.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (limitsEnabled) {
+            // exports run for minutes and have their own concurrency cap, so they would only skew the RTT samples
+            registry.addInterceptor(requestLimitInterceptor)
+                    .addPathPatterns("/v1/recipe/**")
+                    .excludePathPatterns("/v1/recipe/export", "/v1/recipe/export/**");
+        }
+    }
+}
@@ -1,13 +1,26 @@
 package com.abn.recipes.controller;
 
+import com.abn.recipes.dto.ExportPartitionDTO;
+import com.abn.recipes.dto.PantryRecipeDTO;
+import com.abn.recipes.dto.RecipeCountDTO;
+import com.abn.recipes.dto.RecipeExistsDTO;
+import com.abn.recipes.dto.RecipeIngestStatus;
+import com.abn.recipes.dto.SimilarRecipeDTO;
+import com.abn.recipes.dto.SuggestionDTO;
 import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.RecipeExporter;
+import com.abn.recipes.service.RecipeIngestQueue;
 import com.abn.recipes.service.RecipesService;
 import com.abn.recipes.dto.RecipeDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -20,6 +33,10 @@ public class RecipeController {
 
     private final RecipesService recipeService;
 
+    private final RecipeIngestQueue recipeIngestQueue;
+
+    private final RecipeExporter recipeExporter;
+
     @PostMapping
     @Operation(method = "Add a new recipe", summary = "Add recipe")
     public ResponseEntity<RecipeDTO> add(@RequestBody RecipeDTO recipeDTO){
@@ -27,6 +44,24 @@ public class RecipeController {
         return ResponseEntity.ok(r);
     }
 
+    @PostMapping(params = "async=true")
+    @Operation(method = "Queue a new recipe for asynchronous creation", summary = "Add recipe asynchronously")
+    public ResponseEntity<RecipeIngestStatus> addAsync(@RequestBody @Valid RecipeDTO recipeDTO,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        var status = recipeIngestQueue.submit(recipeDTO, idempotencyKey);
+        var location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/v1/recipe/ingest/{id}")
+                .buildAndExpand(status.id())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(status);
+    }
+
+    @Operation(method = "Status of an asynchronous recipe creation", summary = "Ingest status")
+    @GetMapping("/ingest/{id}")
+    public RecipeIngestStatus ingestStatus(@PathVariable String id) {
+        return recipeIngestQueue.status(id);
+    }
+
     @Operation(method = "Update a recipe", summary = "Update recipe")
     @PutMapping("/{id}")
     public ResponseEntity<Recipe> updateRecipe(@PathVariable String id, @RequestBody @Valid RecipeDTO recipeVO) {
@@ -41,6 +76,74 @@ public class RecipeController {
         return ResponseEntity.ok("successfully deleted " + id);
     }
 
+    @Operation(method = "Check whether a recipe exists", summary = "Recipe exists")
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> recipeExists(@PathVariable String id) {
+        return recipeService.existsById(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @Operation(method = "Count recipes by filters", summary = "Count recipes")
+    @GetMapping("/count")
+    public RecipeCountDTO countRecipes(@RequestParam(required = false) String name,
+                                       @RequestParam(required = false) Integer servings,
+                                       @RequestParam(required = false) String exclude,
+                                       @RequestParam(required = false) String include,
+                                       @RequestParam(required = false) String category,
+                                       @RequestParam(required = false) String instructions) {
+        return recipeService.count(name, category, servings, include, exclude, instructions);
+    }
+
+    @Operation(method = "Check whether any recipe matches the filters", summary = "Recipes exist")
+    @GetMapping("/exists")
+    public RecipeExistsDTO recipesExist(@RequestParam(required = false) String name,
+                                        @RequestParam(required = false) Integer servings,
+                                        @RequestParam(required = false) String exclude,
+                                        @RequestParam(required = false) String include,
+                                        @RequestParam(required = false) String category,
+                                        @RequestParam(required = false) String instructions) {
+        return recipeService.exists(name, category, servings, include, exclude, instructions);
+    }
+
+    @Operation(method = "Split the recipe ids into ranges for a resumable export", summary = "Export plan")
+    @GetMapping("/export/plan")
+    public List<ExportPartitionDTO> exportPlan(@RequestParam(required = false) Integer partitions,
+                                               @RequestParam(required = false) String fromId,
+                                               @RequestParam(required = false) String toId) {
+        return recipeExporter.plan(fromId, toId, partitions);
+    }
+
+    @Operation(method = "Export recipes as gzipped newline-delimited JSON", summary = "Export recipes")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) Integer partitions,
+                                                        @RequestParam(required = false) String fromId,
+                                                        @RequestParam(required = false) String toId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(recipeExporter.export(fromId, toId, partitions));
+    }
+
+    @Operation(method = "Suggest recipe names and ingredients starting with a prefix", summary = "Suggest")
+    @GetMapping("/suggest")
+    public List<SuggestionDTO> suggest(@RequestParam String prefix,
+                                       @RequestParam(defaultValue = "10") int limit) {
+        return recipeService.suggest(prefix, limit);
+    }
+
+    @Operation(method = "Find recipes that can be cooked with the given ingredients", summary = "Pantry recipes")
+    @GetMapping("/pantry")
+    public List<PantryRecipeDTO> findByPantry(@RequestParam List<String> ingredients,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        return recipeService.findByPantry(ingredients, limit);
+    }
+
+    @Operation(method = "Find recipes with similar ingredients", summary = "Similar recipes")
+    @GetMapping("/{id}/similar")
+    public List<SimilarRecipeDTO> findSimilar(@PathVariable String id,
+                                              @RequestParam(defaultValue = "10") int limit) {
+        return recipeService.findSimilar(id, limit);
+    }
+
     @Operation(method = "Find recipes by filters", summary = "Find recipes")
     @GetMapping
     public List<RecipeDTO> findRecipes(@RequestParam(required = false) String name,
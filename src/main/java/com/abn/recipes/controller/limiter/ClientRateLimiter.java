@@ -0,0 +1,132 @@
+package com.abn.recipes.controller.limiter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket per client. At most {@code maxClients} buckets are kept; past that a bucket that
+ * has refilled completely is dropped, since recreating it changes nothing, looking at the least
+ * recently used ones first. When none of those is full the least recently used bucket is dropped
+ * anyway, so with more active clients than {@code maxClients} a throttled client can come back
+ * with a fresh bucket.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private final double permitsPerSecond;
+
+    private final double burst;
+
+    /**
+     * Least recently used buckets looked at for a full one before falling back to the eldest.
+     */
+    private static final int EVICTION_SCAN = 64;
+
+    private final int maxClients;
+
+    private final Map<String, Bucket> buckets;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public ClientRateLimiter(@Value("${recipes.limits.rate.permits-per-second:100}") double permitsPerSecond,
+                             @Value("${recipes.limits.rate.burst:200}") double burst,
+                             @Value("${recipes.limits.rate.max-clients:10000}") int maxClients) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+        this.buckets = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public boolean tryAcquire(String clientId) {
+        long now = System.nanoTime();
+        Bucket bucket;
+        synchronized (buckets) {
+            bucket = buckets.get(clientId);
+            if (bucket == null) {
+                if (buckets.size() >= maxClients) {
+                    evict(now);
+                }
+                bucket = new Bucket(now);
+                buckets.put(clientId, bucket);
+            }
+        }
+
+        var acquired = bucket.tryAcquire(now);
+        if (!acquired) {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    public double permitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public double burst() {
+        return burst;
+    }
+
+    public int trackedClients() {
+        synchronized (buckets) {
+            return buckets.size();
+        }
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    private void evict(long now) {
+        var eldest = buckets.values().iterator();
+        for (int scanned = 0; scanned < EVICTION_SCAN && eldest.hasNext(); scanned++) {
+            if (eldest.next().isFull(now)) {
+                eldest.remove();
+                return;
+            }
+        }
+        eldest = buckets.values().iterator();
+        if (eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private final class Bucket {
+
+        private double tokens = burst;
+
+        private long refilledAt;
+
+        private Bucket(long now) {
+            this.refilledAt = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized boolean isFull(long now) {
+            return tokensAt(now) >= burst;
+        }
+
+        private void refill(long now) {
+            tokens = tokensAt(now);
+            refilledAt = now;
+        }
+
+        private double tokensAt(long now) {
+            double elapsedSeconds = (double) (now - refilledAt) / TimeUnit.SECONDS.toNanos(1);
+            return Math.min(burst, tokens + elapsedSeconds * permitsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.abn.recipes.controller.limiter;
+
+import com.abn.recipes.service.exception.RateLimitExceededException;
+import com.abn.recipes.service.exception.ServiceOverloadedException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+
+/**
+ * Rejects requests over the client's rate with 429 and requests over the adaptive concurrency
+ * limit with 503, before they reach the controller. Async requests keep their permit until the
+ * final async dispatch completes.
+ */
+@RequiredArgsConstructor
+@Component
+public class RequestLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED_AT = RequestLimitInterceptor.class.getName() + ".startedAt";
+
+    private final ClientRateLimiter clientRateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        var clientId = clientId(request);
+        if (!clientRateLimiter.tryAcquire(clientId)) {
+            throw new RateLimitExceededException("Rate limit exceeded for client " + clientId);
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw new ServiceOverloadedException("Service is overloaded, retry later");
+        }
+
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        if (request.getAttribute(STARTED_AT) instanceof Long startedAt) {
+            request.removeAttribute(STARTED_AT);
+            concurrencyLimiter.release(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Authenticated principal, else the remote address. Behind a proxy, the address comes from
+     * {@code X-Forwarded-For} only when {@code server.forward-headers-strategy} trusts it.
+     */
+    private static String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? principal.getName() : request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,34 @@
+package com.abn.recipes.controller.limiter;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+@Component
+@Endpoint(id = "recipelimits")
+public class RequestLimitsEndpoint {
+
+    private final ClientRateLimiter clientRateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        return Map.of(
+                "rate", Map.of(
+                        "permitsPerSecond", clientRateLimiter.permitsPerSecond(),
+                        "burst", clientRateLimiter.burst(),
+                        "trackedClients", clientRateLimiter.trackedClients(),
+                        "rejected", clientRateLimiter.rejectedCount()),
+                "concurrency", Map.of(
+                        "limit", concurrencyLimiter.limit(),
+                        "inFlight", concurrencyLimiter.inFlight(),
+                        "shortRttMillis", concurrencyLimiter.shortRttMillis(),
+                        "longRttMillis", concurrencyLimiter.longRttMillis(),
+                        "rejected", concurrencyLimiter.rejectedCount()));
+    }
+}
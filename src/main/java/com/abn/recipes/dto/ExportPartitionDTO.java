@@ -0,0 +1,8 @@
+package com.abn.recipes.dto;
+
+/**
+ * Range of recipe ids read by one export reader, from {@code fromId} inclusive to {@code toId}
+ * exclusive. A {@code null} bound leaves that side of the range open.
+ */
+public record ExportPartitionDTO(int index, String fromId, String toId) {
+}
@@ -0,0 +1,6 @@
+package com.abn.recipes.dto;
+
+import java.util.List;
+
+public record PantryRecipeDTO(RecipeDTO recipe, double coverage, int missing, List<String> missingIngredients) {
+}
@@ -0,0 +1,8 @@
+package com.abn.recipes.dto;
+
+/**
+ * Number of recipes matching a query. {@code estimated} is set when the total comes from the
+ * collection metadata instead of counting documents.
+ */
+public record RecipeCountDTO(long count, boolean estimated) {
+}
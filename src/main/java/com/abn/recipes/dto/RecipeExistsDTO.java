@@ -0,0 +1,4 @@
+package com.abn.recipes.dto;
+
+public record RecipeExistsDTO(boolean exists) {
+}
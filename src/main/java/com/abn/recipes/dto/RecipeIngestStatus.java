@@ -0,0 +1,8 @@
+package com.abn.recipes.dto;
+
+public record RecipeIngestStatus(String id, Status status, String message) {
+
+    public enum Status {
+        PENDING, CREATED, FAILED
+    }
+}
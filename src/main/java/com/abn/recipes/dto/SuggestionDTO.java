@@ -0,0 +1,8 @@
+package com.abn.recipes.dto;
+
+public record SuggestionDTO(String text, Type type, long weight) {
+
+    public enum Type {
+        NAME, INGREDIENT
+    }
+}
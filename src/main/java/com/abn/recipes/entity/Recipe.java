@@ -1,7 +1,9 @@
 package com.abn.recipes.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -14,9 +16,14 @@ import java.util.List;
 public class Recipe {
     @Id
     public String id;
+    @Indexed
     public String name;
     public String instructions;
     public String category;
+    @Indexed
     public Integer servings;
     public List<String> ingredients;
+    @JsonIgnore
+    @Indexed
+    public List<Long> lshBuckets;
 }
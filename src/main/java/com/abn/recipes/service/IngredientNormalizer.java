@@ -0,0 +1,57 @@
+package com.abn.recipes.service;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces free-text ingredient lines such as {@code "50g feta cheese, cubed"} to the ingredient
+ * itself ({@code "feta cheese"}), so that recipes can be compared on what they contain.
+ */
+public final class IngredientNormalizer {
+
+    private static final Pattern PARENTHESES = Pattern.compile("\\([^)]*\\)");
+
+    private static final Pattern QUANTITY = Pattern.compile("[\\d½¼¾⅓⅔.,/-]+[a-z]*");
+
+    private static final Set<String> MEASURES = Set.of(
+            "g", "kg", "mg", "ml", "l", "tbsp", "tsp", "cup", "cups", "oz", "lb", "can", "cans", "tin", "tins",
+            "pinch", "handful", "bunch", "a", "an", "of", "large", "small", "medium");
+
+    private IngredientNormalizer() {
+    }
+
+    public static String normalize(String ingredient) {
+        if (StringUtils.isBlank(ingredient)) {
+            return "";
+        }
+        var text = PARENTHESES.matcher(ingredient.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        text = StringUtils.substringBefore(text, ",");
+
+        var tokens = StringUtils.split(text);
+        int start = 0;
+        while (start < tokens.length && (QUANTITY.matcher(tokens[start]).matches() || MEASURES.contains(tokens[start]))) {
+            start++;
+        }
+        var normalized = String.join(" ", Arrays.copyOfRange(tokens, start, tokens.length));
+        return normalized.isEmpty() ? String.join(" ", tokens) : normalized;
+    }
+
+    public static Set<String> normalize(Collection<String> ingredients) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (ingredients != null) {
+            for (String ingredient : ingredients) {
+                var value = normalize(ingredient);
+                if (!value.isEmpty()) {
+                    normalized.add(value);
+                }
+            }
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,226 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.event.RecipeDeletedEvent;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index from normalized ingredient to the recipes that use it. Each recipe gets a dense
+ * ordinal, and each ingredient a bitmap of recipe ordinals; matching a pantry adds up the bitmaps
+ * of its ingredients, so it only touches the recipes sharing an ingredient with it. Ordinals of deleted recipes are handed to the next new
+ * recipe, and the whole index is rebuilt periodically, see {@link RecipeCatalogIndex}.
+ */
+@Component
+public class PantryIndex extends RecipeCatalogIndex<PantryIndex.Catalog> {
+
+    private static final Comparator<Match> RANKING = Comparator.comparingDouble(Match::coverage)
+            .thenComparing(Comparator.comparingInt(Match::missing).reversed());
+
+    public PantryIndex(MongoTemplate mongoTemplate,
+                       @Value("${recipes.pantry.refresh-interval:5m}") Duration refreshInterval) {
+        super("pantry index", mongoTemplate, refreshInterval);
+    }
+
+    @EventListener
+    public void onSaved(RecipeSavedEvent event) {
+        var recipe = event.recipe();
+        var ingredients = IngredientNormalizer.normalize(recipe.getIngredients());
+        apply(catalog -> catalog.index(recipe.getId(), ingredients));
+    }
+
+    @EventListener
+    public void onDeleted(RecipeDeletedEvent event) {
+        var id = event.recipe().getId();
+        apply(catalog -> catalog.remove(id));
+    }
+
+    /**
+     * Recipes ranked by the fraction of their ingredients found in the pantry, then by the
+     * fewest missing ingredients.
+     */
+    public List<Match> match(Set<String> pantry, int limit) {
+        return current().match(pantry, limit);
+    }
+
+    /**
+     * Ordinals handed out by the current index, including those of deleted recipes not yet reused.
+     */
+    public int ordinalCount() {
+        return current().ordinalCount();
+    }
+
+    @Override
+    protected Query query() {
+        Query query = new Query();
+        query.fields().include("ingredients");
+        return query;
+    }
+
+    @Override
+    protected Catalog build(Iterator<Recipe> recipes) {
+        var catalog = new Catalog();
+        recipes.forEachRemaining(recipe -> catalog.index(recipe.getId(), IngredientNormalizer.normalize(recipe.getIngredients())));
+        return catalog;
+    }
+
+    public record Match(String id, int matched, int total) {
+
+        public double coverage() {
+            return total == 0 ? 0 : (double) matched / total;
+        }
+
+        public int missing() {
+            return total - matched;
+        }
+    }
+
+    static final class Catalog {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<String, Integer> ordinals = new HashMap<>();
+
+        private final List<String> ids = new ArrayList<>();
+
+        private final List<Set<String>> ingredients = new ArrayList<>();
+
+        private final Map<String, RoaringBitmap> recipesByIngredient = new HashMap<>();
+
+        private final RoaringBitmap free = new RoaringBitmap();
+
+        List<Match> match(Set<String> pantry, int limit) {
+            lock.readLock().lock();
+            try {
+                // bit-sliced counter: bit j of a recipe's matched count is set in counts[j], so
+                // adding an ingredient is a ripple-carry over bitmaps rather than a per-recipe loop
+                List<RoaringBitmap> counts = new ArrayList<>();
+                for (String ingredient : pantry) {
+                    var carry = recipesByIngredient.get(ingredient);
+                    for (int bit = 0; carry != null && !carry.isEmpty(); bit++) {
+                        if (bit == counts.size()) {
+                            counts.add(carry.clone());
+                            break;
+                        }
+                        var count = counts.get(bit);
+                        var next = RoaringBitmap.and(count, carry);
+                        count.xor(carry);
+                        carry = next;
+                    }
+                }
+
+                var candidates = RoaringBitmap.or(counts.iterator());
+                var top = new PriorityQueue<>(RANKING);
+                IntIterator it = candidates.getIntIterator();
+                while (it.hasNext()) {
+                    int ordinal = it.next();
+                    int matched = 0;
+                    for (int bit = 0; bit < counts.size(); bit++) {
+                        if (counts.get(bit).contains(ordinal)) {
+                            matched |= 1 << bit;
+                        }
+                    }
+                    top.add(new Match(ids.get(ordinal), matched, ingredients.get(ordinal).size()));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+
+                List<Match> ranked = new ArrayList<>(top);
+                ranked.sort(RANKING.reversed());
+                return ranked;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void index(String id, Set<String> recipeIngredients) {
+            lock.writeLock().lock();
+            try {
+                var ordinal = ordinals.get(id);
+                if (ordinal != null) {
+                    clear(ordinal);
+                    ingredients.set(ordinal, recipeIngredients);
+                } else if (!free.isEmpty()) {
+                    ordinal = free.first();
+                    free.remove(ordinal);
+                    ordinals.put(id, ordinal);
+                    ids.set(ordinal, id);
+                    ingredients.set(ordinal, recipeIngredients);
+                } else {
+                    ordinal = ids.size();
+                    ordinals.put(id, ordinal);
+                    ids.add(id);
+                    ingredients.add(recipeIngredients);
+                }
+                for (String ingredient : recipeIngredients) {
+                    recipesByIngredient.computeIfAbsent(ingredient, i -> new RoaringBitmap()).add(ordinal);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String id) {
+            lock.writeLock().lock();
+            try {
+                var ordinal = ordinals.remove(id);
+                if (ordinal != null) {
+                    clear(ordinal);
+                    ids.set(ordinal, null);
+                    ingredients.set(ordinal, null);
+                    free.add(ordinal);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int ordinalCount() {
+            lock.readLock().lock();
+            try {
+                return ids.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void clear(int ordinal) {
+            for (String ingredient : ingredients.get(ordinal)) {
+                var recipes = recipesByIngredient.get(ingredient);
+                recipes.remove(ordinal);
+                if (recipes.isEmpty()) {
+                    recipesByIngredient.remove(ingredient);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            lock.readLock().lock();
+            try {
+                return ordinals.size() + " recipes, " + recipesByIngredient.size() + " ingredients";
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.exception.IndexWarmingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory index derived from the recipe collection. It is built in the background once the
+ * application is ready, and rebuilt at a fixed delay so that writes of other replicas and direct
+ * database writes are picked up; until the first build completes lookups fail as warming.
+ * Saves and deletes of this process are applied right away, and replayed onto a rebuild that
+ * was running while they happened.
+ *
+ * @param <S> the index structure swapped in by each rebuild
+ */
+@Slf4j
+abstract class RecipeCatalogIndex<S> {
+
+    private final String name;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Duration refreshInterval;
+
+    private final ScheduledExecutorService refresher;
+
+    private final Object writes = new Object();
+
+    private volatile S current;
+
+    private List<Consumer<S>> pending;
+
+    protected RecipeCatalogIndex(String name, MongoTemplate mongoTemplate, Duration refreshInterval) {
+        this.name = name;
+        this.mongoTemplate = mongoTemplate;
+        this.refreshInterval = refreshInterval;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name.replace(' ', '-') + "-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * Rebuilds the index from the collection and swaps it in. The previous index keeps serving
+     * lookups meanwhile.
+     */
+    public void refresh() {
+        synchronized (writes) {
+            pending = new ArrayList<>();
+        }
+        try {
+            S fresh;
+            try (CloseableIterator<Recipe> recipes = mongoTemplate.stream(query(), Recipe.class)) {
+                fresh = build(recipes);
+            }
+            synchronized (writes) {
+                pending.forEach(change -> change.accept(fresh));
+                current = fresh;
+            }
+            log.info("The {} was rebuilt: {}", name, fresh);
+        } catch (Throwable e) {
+            // the schedule stops at the first exception, and the index must keep refreshing
+            log.error("Rebuild of the {} failed", name, e);
+        } finally {
+            synchronized (writes) {
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * The index to answer a lookup from.
+     */
+    protected S current() {
+        var index = current;
+        if (index == null) {
+            throw new IndexWarmingException("The " + name + " is warming up, retry later");
+        }
+        return index;
+    }
+
+    /**
+     * Applies a write of this process to the current index and to a running rebuild. Changes
+     * must be idempotent, or accept being counted twice until the next rebuild.
+     */
+    protected void apply(Consumer<S> change) {
+        synchronized (writes) {
+            if (current != null) {
+                change.accept(current);
+            }
+            if (pending != null) {
+                pending.add(change);
+            }
+        }
+    }
+
+    /**
+     * Replaces the current index, on the refresh thread, with one derived from it in memory,
+     * e.g. to fold in the writes applied since the last rebuild.
+     */
+    protected void compact(UnaryOperator<S> compaction) {
+        try {
+            refresher.execute(() -> {
+                try {
+                    synchronized (writes) {
+                        if (current != null) {
+                            current = compaction.apply(current);
+                        }
+                    }
+                } catch (Throwable e) {
+                    log.error("Compaction of the {} failed", name, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("The {} is stopping, compaction skipped", name);
+        }
+    }
+
+    /**
+     * Query selecting the fields the index is built from.
+     */
+    protected abstract Query query();
+
+    protected abstract S build(Iterator<Recipe> recipes);
+}
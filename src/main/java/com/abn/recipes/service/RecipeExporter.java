@@ -0,0 +1,266 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.dto.ExportPartitionDTO;
+import com.abn.recipes.dto.RecipeDTO;
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.exception.ExportLimitExceededException;
+import com.abn.recipes.service.exception.InvalidExportRangeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Full-catalog export. The id space is split into ranges at points sampled with {@code $sample},
+ * each range is read by its own cursor on a bounded pool, and the documents are streamed
+ * unsorted as gzipped NDJSON. One export reads at most its share of the pool, parallelism
+ * divided by max-concurrent, at a time. Readers hand serialized lines to the writer through a bounded
+ * queue, so memory stays constant whatever the catalog size.
+ */
+@Slf4j
+@Service
+public class RecipeExporter {
+
+    private static final int MAX_PARTITIONS = 256;
+
+    private static final int SAMPLES_PER_PARTITION = 20;
+
+    private static final int OBJECT_ID = 7;
+
+    private static final byte[] END_OF_PARTITION = new byte[0];
+
+    private final MongoTemplate readMongoTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final int parallelism;
+
+    private final int readersPerExport;
+
+    private final int bufferSize;
+
+    private final int batchSize;
+
+    private final Semaphore exports;
+
+    private final ExecutorService readers;
+
+    public RecipeExporter(@Qualifier("readMongoTemplate") MongoTemplate readMongoTemplate,
+                          ObjectMapper objectMapper,
+                          @Value("${recipes.export.parallelism:0}") int parallelism,
+                          @Value("${recipes.export.max-concurrent:2}") int maxConcurrent,
+                          @Value("${recipes.export.buffer-size:1000}") int bufferSize,
+                          @Value("${recipes.export.batch-size:1000}") int batchSize) {
+        this.readMongoTemplate = readMongoTemplate;
+        this.objectMapper = objectMapper;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+        this.exports = new Semaphore(maxConcurrent);
+        // each running export gets its share of the pool, so a slow client can't starve the others
+        this.readersPerExport = Math.max(1, this.parallelism / Math.max(1, maxConcurrent));
+
+        var threads = new AtomicInteger();
+        this.readers = Executors.newFixedThreadPool(Math.max(this.parallelism, readersPerExport * maxConcurrent), r -> {
+            Thread thread = new Thread(r, "recipe-export-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        readers.shutdownNow();
+    }
+
+    /**
+     * Contiguous id ranges covering {@code [fromId, toId)}. Split points come from a random
+     * sample, so two plans of the same catalog differ; resume from a stored plan, not a new one.
+     * Recipes whose id is not an ObjectId fall in the range that is open at the bottom.
+     */
+    public List<ExportPartitionDTO> plan(String fromId, String toId, Integer partitions) {
+        var objectIds = objectIds(fromId, toId);
+        int count = Math.min(MAX_PARTITIONS, Math.max(1, Objects.requireNonNullElse(partitions, parallelism)));
+
+        List<String> splitPoints = List.of();
+        if (count > 1) {
+            var sample = Aggregation.newAggregation(Recipe.class,
+                    Aggregation.match(objectIds),
+                    Aggregation.sample((long) count * SAMPLES_PER_PARTITION),
+                    Aggregation.project("id"));
+            var ids = readMongoTemplate.aggregate(sample, Recipe.class).getMappedResults().stream()
+                    .map(Recipe::getId)
+                    .sorted()
+                    .distinct()
+                    .toList();
+            splitPoints = splitPoints(ids, count);
+        }
+
+        List<ExportPartitionDTO> plan = new ArrayList<>(splitPoints.size() + 1);
+        var lower = fromId;
+        for (String splitPoint : splitPoints) {
+            plan.add(new ExportPartitionDTO(plan.size(), lower, splitPoint));
+            lower = splitPoint;
+        }
+        plan.add(new ExportPartitionDTO(plan.size(), lower, toId));
+        return plan;
+    }
+
+    /**
+     * Plans the export of {@code [fromId, toId)} and returns the body that streams it. Fails
+     * fast when too many exports are already running.
+     */
+    public StreamingResponseBody export(String fromId, String toId, Integer partitions) {
+        if (!exports.tryAcquire()) {
+            throw new ExportLimitExceededException("Too many recipe exports in progress, retry later");
+        }
+        try {
+            var plan = plan(fromId, toId, partitions);
+            return out -> {
+                try {
+                    write(plan, out);
+                } finally {
+                    exports.release();
+                }
+            };
+        } catch (RuntimeException e) {
+            exports.release();
+            throw e;
+        }
+    }
+
+    static List<String> splitPoints(List<String> sortedIds, int partitions) {
+        List<String> splitPoints = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions; i++) {
+            var id = sortedIds.isEmpty() ? null : sortedIds.get(i * sortedIds.size() / partitions);
+            if (id != null && (splitPoints.isEmpty() || !splitPoints.get(splitPoints.size() - 1).equals(id))) {
+                splitPoints.add(id);
+            }
+        }
+        return splitPoints;
+    }
+
+    private void write(List<ExportPartitionDTO> plan, OutputStream out) throws IOException {
+        BlockingQueue<byte[]> lines = new ArrayBlockingQueue<>(bufferSize);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Future<?>> tasks = new ArrayList<>(plan.size());
+        // a sliding window over the plan: the next partition starts when one finishes
+        int started = 0;
+        while (started < Math.min(readersPerExport, plan.size())) {
+            var partition = plan.get(started++);
+            tasks.add(readers.submit(() -> read(partition, lines, failure)));
+        }
+
+        long written = 0;
+        try {
+            var gzip = new GZIPOutputStream(out, 64 * 1024);
+            int remaining = plan.size();
+            while (remaining > 0) {
+                var line = lines.take();
+                if (line == END_OF_PARTITION) {
+                    remaining--;
+                    if (failure.get() != null) {
+                        // leave the gzip stream unterminated so the client sees a truncated export
+                        throw new IOException("Recipe export failed", failure.get());
+                    }
+                    if (started < plan.size()) {
+                        var partition = plan.get(started++);
+                        tasks.add(readers.submit(() -> read(partition, lines, failure)));
+                    }
+                    continue;
+                }
+                gzip.write(line);
+                gzip.write('\n');
+                written++;
+            }
+            gzip.finish();
+            gzip.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Recipe export interrupted");
+        } finally {
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        log.info("Exported {} recipes in {} partitions", written, plan.size());
+    }
+
+    private void read(ExportPartitionDTO partition, BlockingQueue<byte[]> lines, AtomicReference<Exception> failure) {
+        Query query = new Query(range(partition.fromId(), partition.toId())).cursorBatchSize(batchSize);
+        query.fields().exclude("lshBuckets");
+        try {
+            try (CloseableIterator<Recipe> recipes = readMongoTemplate.stream(query, Recipe.class)) {
+                while (recipes.hasNext()) {
+                    lines.put(objectMapper.writeValueAsBytes(RecipeDTO.toDTO(recipes.next())));
+                }
+            } catch (RuntimeException | IOException e) {
+                log.warn("Export of partition {} failed", partition.index(), e);
+                failure.compareAndSet(null, e);
+            }
+            lines.put(END_OF_PARTITION);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Recipes with an id in {@code [fromId, toId)}, in BSON order: ids that are not ObjectIds,
+     * such as client-supplied strings, sort before every ObjectId and so belong to the range
+     * that is open at the bottom.
+     */
+    private static Criteria range(String fromId, String toId) {
+        if (fromId == null && toId == null) {
+            return new Criteria();
+        }
+        if (fromId != null) {
+            return objectIds(fromId, toId);
+        }
+        return new Criteria().orOperator(objectIds(null, toId), where("id").not().type(OBJECT_ID));
+    }
+
+    private static Criteria objectIds(String fromId, String toId) {
+        var id = where("id").type(OBJECT_ID);
+        if (fromId != null) {
+            id.gte(objectId(fromId));
+        }
+        if (toId != null) {
+            id.lt(objectId(toId));
+        }
+        return id;
+    }
+
+    // the query mapper leaves range operands on _id as they are, so convert them here
+    private static ObjectId objectId(String id) {
+        if (!ObjectId.isValid(id)) {
+            throw new InvalidExportRangeException("Export bound " + id + " is not an ObjectId");
+        }
+        return new ObjectId(id);
+    }
+}
@@ -0,0 +1,70 @@
+package com.abn.recipes.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Filter parameters of a recipe query, with empty values normalized to {@code null} and the
+ * case-insensitive category lower-cased, so that equivalent requests are equal.
+ */
+public record RecipeFilter(String name, String category, Integer servings, String include, String exclude, String instructions) {
+
+    public static RecipeFilter of(String name, String category, Integer servings, String include, String exclude, String instructions) {
+        return new RecipeFilter(StringUtils.defaultIfEmpty(name, null),
+                StringUtils.defaultIfEmpty(StringUtils.lowerCase(category, Locale.ROOT), null),
+                servings,
+                StringUtils.defaultIfEmpty(include, null),
+                StringUtils.defaultIfEmpty(exclude, null),
+                StringUtils.defaultIfEmpty(instructions, null));
+    }
+
+    public boolean isEmpty() {
+        return criteria().isEmpty();
+    }
+
+    /**
+     * Query matching this filter, unsorted and unpaged, so that finds, counts and existence
+     * checks share the same criteria.
+     */
+    public Query toQuery() {
+        var criteria = criteria();
+        if (criteria.isEmpty()) {
+            return new Query();
+        }
+        return Query.query(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+    }
+
+    private List<Criteria> criteria() {
+        final List<Criteria> criteria = new ArrayList<>();
+
+        if (StringUtils.isNotEmpty(name)) {
+            criteria.add(where("name").regex(name));
+        }
+        if (StringUtils.isNotEmpty(include)) {
+            criteria.add(where("ingredients").regex(include));
+        }
+        if (StringUtils.isNotEmpty(exclude)) {
+            criteria.add(where("ingredients").not().regex(exclude));
+        }
+        if (StringUtils.isNotEmpty(category)) {
+            Pattern pattern = Pattern.compile(category, Pattern.CASE_INSENSITIVE);
+            criteria.add(where("category").regex(pattern));
+        }
+        if (Objects.nonNull(servings)) {
+            criteria.add(where("servings").is(servings));
+        }
+        if (StringUtils.isNotEmpty(instructions)) {
+            criteria.add(where("instructions").regex(instructions));
+        }
+        return criteria;
+    }
+}
@@ -0,0 +1,240 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.dto.RecipeDTO;
+import com.abn.recipes.dto.RecipeIngestStatus;
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.exception.IngestQueueFullException;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import com.abn.recipes.service.exception.ResourceNotFoundException;
+import com.abn.recipes.service.exception.ServiceOverloadedException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.abn.recipes.dto.RecipeIngestStatus.Status.CREATED;
+import static com.abn.recipes.dto.RecipeIngestStatus.Status.FAILED;
+import static com.abn.recipes.dto.RecipeIngestStatus.Status.PENDING;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Write-behind queue for asynchronous recipe creation. Accepted recipes get their id up front
+ * and are inserted in batches by a single drain thread.
+ */
+@Slf4j
+@Service
+public class RecipeIngestQueue {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final BlockingQueue<Recipe> queue;
+
+    private final int batchSize;
+
+    private final Map<String, RecipeIngestStatus> statuses;
+
+    private final Map<String, String> idempotencyKeys;
+
+    private final ExecutorService drainer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recipe-ingest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running = true;
+
+    public RecipeIngestQueue(MongoTemplate mongoTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${recipes.ingest.queue-capacity:10000}") int queueCapacity,
+                             @Value("${recipes.ingest.batch-size:500}") int batchSize,
+                             @Value("${recipes.ingest.status-retention:100000}") int statusRetention) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.statuses = boundedMap(statusRetention);
+        this.idempotencyKeys = boundedMap(statusRetention);
+    }
+
+    @PostConstruct
+    public void start() {
+        drainer.execute(this::drain);
+    }
+
+    /**
+     * Stops accepting recipes and gives the drain thread some time to write the queued ones;
+     * those still queued afterwards are failed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (this) {
+            running = false;
+        }
+        drainer.shutdown();
+        if (!drainer.awaitTermination(10, TimeUnit.SECONDS)) {
+            drainer.shutdownNow();
+        }
+
+        List<Recipe> dropped = new ArrayList<>();
+        queue.drainTo(dropped);
+        if (!dropped.isEmpty()) {
+            failPending(dropped, "Recipe ingest stopped before the recipe was written");
+            log.warn("Recipe ingest queue stopped, {} pending recipes were dropped", dropped.size());
+        }
+    }
+
+    public synchronized RecipeIngestStatus submit(RecipeDTO recipeVO, String idempotencyKey) {
+        if (!running) {
+            throw new ServiceOverloadedException("Recipe ingest is shutting down, retry later");
+        }
+        if (idempotencyKey != null && idempotencyKeys.containsKey(idempotencyKey)) {
+            return status(idempotencyKeys.get(idempotencyKey));
+        }
+
+        var recipe = RecipeSignatures.sign(RecipeDTO.toEntity(recipeVO));
+        recipe.setId(new ObjectId().toHexString());
+
+        var status = new RecipeIngestStatus(recipe.getId(), PENDING, null);
+        statuses.put(recipe.getId(), status);
+        if (!queue.offer(recipe)) {
+            statuses.remove(recipe.getId());
+            throw new IngestQueueFullException("Recipe ingest queue is full, retry later");
+        }
+        if (idempotencyKey != null) {
+            idempotencyKeys.put(idempotencyKey, recipe.getId());
+        }
+
+        return status;
+    }
+
+    public synchronized RecipeIngestStatus status(String id) {
+        var status = statuses.get(id);
+        if (status == null) {
+            throw new ResourceNotFoundException("Recipe ingest " + id + " doesn't exist");
+        }
+        return status;
+    }
+
+    private void drain() {
+        List<Recipe> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                // this is the only consumer, so it must outlive anything a batch throws
+                log.error(" abn-recipes ingest error :", e);
+                failPending(batch, e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Recipe> batch) {
+        List<Recipe> accepted = new ArrayList<>(batch.size());
+        try {
+            var names = batch.stream().map(Recipe::getName).toList();
+            Query query = Query.query(where("name").in(names));
+            query.fields().include("name");
+            Set<String> taken = new HashSet<>();
+            mongoTemplate.find(query, Recipe.class).forEach(r -> taken.add(r.getName()));
+
+            for (Recipe recipe : batch) {
+                if (taken.add(recipe.getName())) {
+                    accepted.add(recipe);
+                } else {
+                    updateStatus(recipe.getId(), FAILED, "Recipe " + recipe.getName() + " already exists ");
+                }
+            }
+
+            if (!accepted.isEmpty()) {
+                var failures = insert(accepted);
+                List<Recipe> created = new ArrayList<>(accepted.size());
+                for (int i = 0; i < accepted.size(); i++) {
+                    var recipe = accepted.get(i);
+                    if (failures.containsKey(i)) {
+                        updateStatus(recipe.getId(), FAILED, failures.get(i));
+                    } else {
+                        updateStatus(recipe.getId(), CREATED, null);
+                        created.add(recipe);
+                    }
+                }
+                created.forEach(r -> eventPublisher.publishEvent(new RecipeSavedEvent(null, r)));
+
+                log.info("{} recipes successfully created from ingest queue", created.size());
+            }
+        } catch (RuntimeException e) {
+            log.error(" abn-recipes ingest error :", e);
+            failPending(batch, e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts unordered, so a rejected recipe does not stop the rest of the batch, and returns the
+     * error message of each rejected position.
+     */
+    private Map<Integer, String> insert(List<Recipe> recipes) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Recipe.class).insert(recipes).execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            log.warn("{} of {} ingested recipes were rejected", e.getErrors().size(), recipes.size());
+            Map<Integer, String> failures = new HashMap<>();
+            e.getErrors().forEach(error -> failures.put(error.getIndex(), error.getMessage()));
+            return failures;
+        }
+    }
+
+    private synchronized void failPending(List<Recipe> batch, String message) {
+        for (Recipe recipe : batch) {
+            var status = statuses.get(recipe.getId());
+            if (status != null && status.status() == PENDING) {
+                updateStatus(recipe.getId(), FAILED, message);
+            }
+        }
+    }
+
+    private synchronized void updateStatus(String id, RecipeIngestStatus.Status status, String message) {
+        statuses.put(id, new RecipeIngestStatus(id, status, message));
+    }
+
+    private static <K, V> Map<K, V> boundedMap(int maxEntries) {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.entity.Recipe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Gives recipes written before similarity search their LSH bands, and drops the full MinHash
+ * signature older versions stored next to them. Runs once per startup in the background; a
+ * recipe that is already up to date is not touched.
+ */
+@Slf4j
+@Service
+public class RecipeSignatureBackfill {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recipe-signature-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RecipeSignatureBackfill(MongoTemplate mongoTemplate,
+                                   @Value("${recipes.similar.backfill.enabled:true}") boolean enabled,
+                                   @Value("${recipes.similar.backfill.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            runner.execute(this::backfill);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Returns the number of recipes updated.
+     */
+    public long backfill() {
+        Query query = Query.query(outdated());
+        query.fields().include("id").include("ingredients");
+
+        long updated = 0;
+        try (CloseableIterator<Recipe> recipes = mongoTemplate.stream(query, Recipe.class)) {
+            BulkOperations bulk = null;
+            int pending = 0;
+            while (recipes.hasNext() && !Thread.currentThread().isInterrupted()) {
+                var recipe = recipes.next();
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Recipe.class);
+                }
+                // a recipe saved meanwhile got its bands from the new ingredients, keep them
+                bulk.updateOne(Query.query(where("id").is(recipe.getId()).andOperator(outdated())), new Update()
+                        .set("lshBuckets", RecipeSignatures.lshBuckets(recipe.getIngredients()))
+                        .unset("minHash"));
+                if (++pending == batchSize) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+            if (bulk != null) {
+                updated += bulk.execute().getModifiedCount();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Recipe signature backfill stopped after {} recipes", updated, e);
+            return updated;
+        }
+
+        if (updated > 0) {
+            log.info("Backfilled similarity bands of {} recipes", updated);
+        }
+        return updated;
+    }
+
+    private static Criteria outdated() {
+        return new Criteria().orOperator(
+                where("lshBuckets").exists(false),
+                where("minHash").exists(true));
+    }
+}
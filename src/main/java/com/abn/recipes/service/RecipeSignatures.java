@@ -0,0 +1,97 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.entity.Recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures over the normalized ingredient set of a recipe, and the locality-sensitive
+ * hashing bands derived from them. Two recipes share at least one band with probability
+ * {@code 1 - (1 - J^ROWS)^BANDS} for Jaccard similarity {@code J}, so a lookup on the indexed
+ * bands finds similar recipes without comparing against the whole collection.
+ * <p>
+ * The seeds are fixed: bands are stored with the recipes and must stay comparable.
+ */
+public final class RecipeSignatures {
+
+    public static final int BANDS = 32;
+
+    public static final int ROWS = 4;
+
+    private static final int HASHES = BANDS * ROWS;
+
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(HASHES).toArray();
+
+    private RecipeSignatures() {
+    }
+
+    /**
+     * Stores the LSH bands only; the signature itself is not needed once the bands are known.
+     */
+    public static Recipe sign(Recipe recipe) {
+        recipe.setLshBuckets(lshBuckets(recipe.getIngredients()));
+        return recipe;
+    }
+
+    public static List<Long> lshBuckets(Collection<String> ingredients) {
+        return lshBuckets(minHash(IngredientNormalizer.normalize(ingredients)));
+    }
+
+    public static int[] minHash(Set<String> ingredients) {
+        if (ingredients.isEmpty()) {
+            return new int[0];
+        }
+        var signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String ingredient : ingredients) {
+            long base = fnv1a(ingredient);
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], (int) mix(base ^ SEEDS[i]));
+            }
+        }
+        return signature;
+    }
+
+    public static List<Long> lshBuckets(int[] signature) {
+        if (signature.length != HASHES) {
+            return List.of();
+        }
+        List<Long> buckets = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            int bandHash = Arrays.hashCode(Arrays.copyOfRange(signature, band * ROWS, (band + 1) * ROWS));
+            buckets.add(((long) band << 32) | (bandHash & 0xFFFFFFFFL));
+        }
+        return buckets;
+    }
+
+    public static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 0;
+        }
+        long intersection = a.stream().filter(b::contains).count();
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,359 @@
+package com.abn.recipes.service;
+
+import com.abn.recipes.dto.SuggestionDTO;
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.event.RecipeDeletedEvent;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Prefix index over recipe names and normalized ingredients, weighted by the number of recipes
+ * using each term. Terms are kept in parallel arrays sorted by their lower-cased form, so a
+ * prefix is a binary-searched range, and a segment tree over the ranking finds the top
+ * completions of any range in {@code O(k log n)}. Writes since the last rebuild are kept as
+ * weight changes in a sorted map and merged into the lookups of their prefix; once there are
+ * {@code recipes.suggest.max-changes} of them they are folded into the arrays in memory, without
+ * waiting for the periodic rebuild, see {@link RecipeCatalogIndex}. Reads take no lock.
+ */
+@Component
+public class RecipeSuggestIndex extends RecipeCatalogIndex<RecipeSuggestIndex.Terms> {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Comparator<SuggestionDTO> RANKING = Comparator.comparingLong(SuggestionDTO::weight).reversed()
+            .thenComparing(SuggestionDTO::text, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(SuggestionDTO::type);
+
+    private static final SuggestionDTO.Type FIRST_TYPE = SuggestionDTO.Type.values()[0];
+
+    private final int maxChanges;
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    public RecipeSuggestIndex(MongoTemplate mongoTemplate,
+                              @Value("${recipes.suggest.refresh-interval:5m}") Duration refreshInterval,
+                              @Value("${recipes.suggest.max-changes:1000}") int maxChanges) {
+        super("suggest index", mongoTemplate, refreshInterval);
+        this.maxChanges = maxChanges;
+    }
+
+    @EventListener
+    public void onSaved(RecipeSavedEvent event) {
+        var previous = event.previous();
+        var recipe = event.recipe();
+        apply(terms -> {
+            if (previous != null) {
+                terms.count(previous, -1);
+            }
+            terms.count(recipe, 1);
+        });
+        compactIfNeeded();
+    }
+
+    @EventListener
+    public void onDeleted(RecipeDeletedEvent event) {
+        var recipe = event.recipe();
+        apply(terms -> terms.count(recipe, -1));
+        compactIfNeeded();
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        var key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        var top = current().suggest(key);
+        return top.subList(0, Math.min(Math.max(limit, 0), top.size()));
+    }
+
+    /**
+     * Terms written since the last rebuild or compaction.
+     */
+    public int changeCount() {
+        return current().changes.size();
+    }
+
+    @Override
+    protected Query query() {
+        Query query = new Query();
+        query.fields().include("name").include("ingredients");
+        return query;
+    }
+
+    @Override
+    protected Terms build(Iterator<Recipe> recipes) {
+        Map<Term, SuggestionDTO> weights = new HashMap<>();
+        recipes.forEachRemaining(recipe -> terms(recipe, (term, text) -> weights.merge(term,
+                new SuggestionDTO(text, term.type(), 1),
+                (current, one) -> new SuggestionDTO(current.text(), current.type(), current.weight() + 1))));
+        return Terms.of(new TreeMap<>(weights));
+    }
+
+    private void compactIfNeeded() {
+        if (isReady() && current().changes.size() >= maxChanges && compacting.compareAndSet(false, true)) {
+            compact(terms -> {
+                try {
+                    return terms.compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private static void terms(Recipe recipe, TermConsumer consumer) {
+        if (StringUtils.isNotBlank(recipe.getName())) {
+            var text = recipe.getName().trim();
+            var key = normalize(text);
+            consumer.accept(new Term(key, SuggestionDTO.Type.NAME), text);
+        }
+        for (String ingredient : IngredientNormalizer.normalize(recipe.getIngredients())) {
+            var key = normalize(ingredient);
+            if (!key.isEmpty()) {
+                consumer.accept(new Term(key, SuggestionDTO.Type.INGREDIENT), ingredient);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return StringUtils.normalizeSpace(StringUtils.defaultString(text)).toLowerCase(Locale.ROOT);
+    }
+
+    private record Term(String key, SuggestionDTO.Type type) implements Comparable<Term> {
+
+        @Override
+        public int compareTo(Term other) {
+            int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : type.compareTo(other.type);
+        }
+    }
+
+    @FunctionalInterface
+    private interface TermConsumer {
+        void accept(Term term, String text);
+    }
+
+    /**
+     * Range of term positions and the best ranked term in it.
+     */
+    private record Span(int from, int to, int best) {
+    }
+
+    static final class Terms {
+
+        private final String[] keys;
+
+        private final String[] texts;
+
+        private final SuggestionDTO.Type[] types;
+
+        private final long[] weights;
+
+        /**
+         * Bottom-up segment tree: node {@code i} holds the best ranked position under it, and the
+         * leaves start at {@code keys.length}.
+         */
+        private final int[] best;
+
+        /**
+         * Weight changes since the build, with the text first seen for the term.
+         */
+        private final NavigableMap<Term, SuggestionDTO> changes = new ConcurrentSkipListMap<>();
+
+        private Terms(String[] keys, String[] texts, SuggestionDTO.Type[] types, long[] weights) {
+            this.keys = keys;
+            this.texts = texts;
+            this.types = types;
+            this.weights = weights;
+
+            int n = keys.length;
+            this.best = new int[2 * n];
+            for (int i = 0; i < n; i++) {
+                best[n + i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                best[i] = better(best[2 * i], best[2 * i + 1]);
+            }
+        }
+
+        /**
+         * Terms with the given weights, which must be sorted by term.
+         */
+        private static Terms of(NavigableMap<Term, SuggestionDTO> weights) {
+            int n = weights.size();
+            var keys = new String[n];
+            var texts = new String[n];
+            var types = new SuggestionDTO.Type[n];
+            var values = new long[n];
+            int i = 0;
+            for (var entry : weights.entrySet()) {
+                var key = entry.getKey().key();
+                var text = entry.getValue().text();
+                keys[i] = key;
+                texts[i] = key.equals(text) ? key : text;
+                types[i] = entry.getKey().type();
+                values[i] = entry.getValue().weight();
+                i++;
+            }
+            return new Terms(keys, texts, types, values);
+        }
+
+        List<SuggestionDTO> suggest(String key) {
+            int from = lowerBound(key);
+            int to = lowerBound(key + Character.MAX_VALUE);
+            var changed = changes.subMap(new Term(key, FIRST_TYPE), true, new Term(key + Character.MAX_VALUE, FIRST_TYPE), false);
+
+            // walk the unchanged terms of the range best first; changed ones are ranked below
+            List<SuggestionDTO> candidates = new ArrayList<>(MAX_SUGGESTIONS + changed.size());
+            var spans = new PriorityQueue<Span>((a, b) -> compare(a.best(), b.best()));
+            if (from < to) {
+                spans.add(span(from, to));
+            }
+            int unchanged = 0;
+            while (unchanged < MAX_SUGGESTIONS && !spans.isEmpty()) {
+                var span = spans.poll();
+                int i = span.best();
+                if (changed.isEmpty() || !changed.containsKey(new Term(keys[i], types[i]))) {
+                    candidates.add(new SuggestionDTO(texts[i], types[i], weights[i]));
+                    unchanged++;
+                }
+                if (span.from() < i) {
+                    spans.add(span(span.from(), i));
+                }
+                if (i + 1 < span.to()) {
+                    spans.add(span(i + 1, span.to()));
+                }
+            }
+
+            changed.forEach((term, change) -> {
+                int index = indexOf(term);
+                long weight = (index < 0 ? 0 : weights[index]) + change.weight();
+                if (weight > 0) {
+                    candidates.add(new SuggestionDTO(index < 0 ? change.text() : texts[index], term.type(), weight));
+                }
+            });
+            candidates.sort(RANKING);
+            return candidates.subList(0, Math.min(MAX_SUGGESTIONS, candidates.size()));
+        }
+
+        void count(Recipe recipe, long delta) {
+            terms(recipe, (term, text) -> changes.merge(term, new SuggestionDTO(text, term.type(), delta),
+                    (current, change) -> current.weight() + change.weight() == 0
+                            ? null
+                            : new SuggestionDTO(current.text(), current.type(), current.weight() + change.weight())));
+        }
+
+        /**
+         * The same terms with the changes folded into the arrays, by merging the two sorted
+         * sequences.
+         */
+        Terms compact() {
+            NavigableMap<Term, SuggestionDTO> merged = new TreeMap<>();
+            var changed = changes.entrySet().iterator();
+            var change = changed.hasNext() ? changed.next() : null;
+            for (int i = 0; i <= keys.length; i++) {
+                var term = i < keys.length ? new Term(keys[i], types[i]) : null;
+                while (change != null && (term == null || change.getKey().compareTo(term) < 0)) {
+                    if (change.getValue().weight() > 0) {
+                        merged.put(change.getKey(), change.getValue());
+                    }
+                    change = changed.hasNext() ? changed.next() : null;
+                }
+                if (term == null) {
+                    break;
+                }
+                long weight = weights[i];
+                if (change != null && change.getKey().equals(term)) {
+                    weight += change.getValue().weight();
+                    change = changed.hasNext() ? changed.next() : null;
+                }
+                if (weight > 0) {
+                    merged.put(term, new SuggestionDTO(texts[i], term.type(), weight));
+                }
+            }
+            return of(merged);
+        }
+
+        private Span span(int from, int to) {
+            int result = -1;
+            for (int l = from + keys.length, r = to + keys.length; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    result = better(result, best[l++]);
+                }
+                if ((r & 1) == 1) {
+                    result = better(result, best[--r]);
+                }
+            }
+            return new Span(from, to, result);
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return compare(a, b) <= 0 ? a : b;
+        }
+
+        /**
+         * {@link #RANKING} on term positions.
+         */
+        private int compare(int a, int b) {
+            int byWeight = Long.compare(weights[b], weights[a]);
+            if (byWeight != 0) {
+                return byWeight;
+            }
+            int byText = String.CASE_INSENSITIVE_ORDER.compare(texts[a], texts[b]);
+            return byText != 0 ? byText : types[a].compareTo(types[b]);
+        }
+
+        private int indexOf(Term term) {
+            for (int i = lowerBound(term.key()); i < keys.length && keys[i].equals(term.key()); i++) {
+                if (types[i] == term.type()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        public String toString() {
+            return keys.length + " terms, " + changes.size() + " changed since build";
+        }
+    }
+}
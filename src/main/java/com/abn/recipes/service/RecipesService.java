@@ -4,22 +4,32 @@ import com.abn.recipes.entity.Recipe;
 import com.abn.recipes.repository.RecipeRepository;
 import com.abn.recipes.service.exception.ResourceAlreadyExistException;
 import com.abn.recipes.service.exception.ResourceNotFoundException;
+import com.abn.recipes.dto.PantryRecipeDTO;
+import com.abn.recipes.dto.RecipeCountDTO;
 import com.abn.recipes.dto.RecipeDTO;
+import com.abn.recipes.dto.RecipeExistsDTO;
+import com.abn.recipes.dto.SimilarRecipeDTO;
+import com.abn.recipes.dto.SuggestionDTO;
+import com.abn.recipes.service.event.RecipeDeletedEvent;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import com.mongodb.client.MongoCollection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 
@@ -28,9 +38,22 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
 @Service
 public class RecipesService {
 
+    private static final int MAX_SIMILAR_CANDIDATES = 1_000;
+
+    private static final int MAX_PANTRY_MATCHES = 100;
+
     private final RecipeRepository recipeRepository;
 
-    private final MongoTemplate mongoTemplate;
+    @Qualifier("readMongoTemplate")
+    private final MongoTemplate readMongoTemplate;
+
+    private final RecipeQueryCoalescer recipeQueryCoalescer;
+
+    private final PantryIndex pantryIndex;
+
+    private final RecipeSuggestIndex recipeSuggestIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
 
     public Recipe save(RecipeDTO recipeVO) {
 
@@ -38,7 +61,8 @@ public class RecipesService {
             throw new ResourceAlreadyExistException("Recipe " + r.getName() + " already exists " );
         });
 
-        var savedRecipe = recipeRepository.save(RecipeDTO.toEntity(recipeVO));
+        var savedRecipe = recipeRepository.save(RecipeSignatures.sign(RecipeDTO.toEntity(recipeVO)));
+        eventPublisher.publishEvent(new RecipeSavedEvent(null, savedRecipe));
 
         log.info("Recipe of {} successfully created ", savedRecipe.getName());
 
@@ -54,7 +78,8 @@ public class RecipesService {
 
         recipeVO.setId(savedRecipe.get().id);
 
-        var updatedRecipe = recipeRepository.save(RecipeDTO.toEntity(recipeVO));
+        var updatedRecipe = recipeRepository.save(RecipeSignatures.sign(RecipeDTO.toEntity(recipeVO)));
+        eventPublisher.publishEvent(new RecipeSavedEvent(savedRecipe.get(), updatedRecipe));
 
         log.info("Recipe {} successfully updated", updatedRecipe.getName());
 
@@ -63,44 +88,104 @@ public class RecipesService {
 
     public void delete(String id) {
 
-        recipeRepository.findById(id)
+        var recipe = recipeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Recipe with id " + id + " doesn't exist"));
 
         recipeRepository.deleteById(id);
+        eventPublisher.publishEvent(new RecipeDeletedEvent(recipe));
 
         log.info("Recipe {} successfully deleted", id);
     }
 
-    public List<Recipe> filterCondition(String name,String category, Integer servings, String include, String exclude, String instructions) {
-        final List<Criteria> criteria = new ArrayList<>();
-        Sort sortByName = Sort.by(Sort.Direction.ASC, "name");
+    public List<PantryRecipeDTO> findByPantry(List<String> pantry, int limit) {
+
+        var available = IngredientNormalizer.normalize(pantry);
+        // recipes deleted by another replica stay in the index until its next refresh; fetch
+        // spare matches so that they don't take the place of live ones
+        int wanted = Math.min(Math.max(limit, 0), MAX_PANTRY_MATCHES);
+        var matches = pantryIndex.match(available, 2 * wanted);
+
+        Query query = Query.query(where("id").in(matches.stream().map(PantryIndex.Match::id).toList()));
+        query.fields().exclude("lshBuckets");
+        Map<String, Recipe> recipes = new HashMap<>();
+        readMongoTemplate.find(query, Recipe.class).forEach(r -> recipes.put(r.getId(), r));
+
+        return matches.stream()
+                .filter(m -> recipes.containsKey(m.id()))
+                .map(m -> {
+                    var recipe = recipes.get(m.id());
+                    var missing = IngredientNormalizer.normalize(recipe.getIngredients()).stream()
+                            .filter(i -> !available.contains(i))
+                            .toList();
+                    return new PantryRecipeDTO(RecipeDTO.toDTO(recipe), m.coverage(), m.missing(), missing);
+                })
+                .limit(wanted)
+                .toList();
+    }
 
-        if (StringUtils.isNotEmpty(name)) {
-            criteria.add(where("name").regex(name));
-        }
-        if (StringUtils.isNotEmpty(include)) {
-            criteria.add(where("ingredients").regex(include));
-        }
-        if (StringUtils.isNotEmpty(exclude)) {
-            criteria.add(where("ingredients").not().regex(exclude));
-        }
-        if (StringUtils.isNotEmpty(category)) {
-            Pattern pattern = Pattern.compile(category, Pattern.CASE_INSENSITIVE);
-            criteria.add(where("category").regex(pattern));
-        }
-        if (Objects.nonNull(servings)) {
-            criteria.add(where("servings").is(servings));
-        }
-        if (StringUtils.isNotEmpty(instructions)) {
-            criteria.add(where("instructions").regex(instructions));
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return recipeSuggestIndex.suggest(prefix, limit);
+    }
+
+    public List<SimilarRecipeDTO> findSimilar(String id, int limit) {
+
+        var recipe = recipeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Recipe with id " + id + " doesn't exist"));
+
+        var ingredients = IngredientNormalizer.normalize(recipe.getIngredients());
+        var buckets = CollectionUtils.isEmpty(recipe.getLshBuckets())
+                ? RecipeSignatures.lshBuckets(recipe.getIngredients())
+                : recipe.getLshBuckets();
+        if (buckets.isEmpty()) {
+            return List.of();
         }
 
-        if(!CollectionUtils.isEmpty(criteria)){
-            Query query = Query.query(new Criteria().andOperator(criteria.toArray(new Criteria[0]))).with(sortByName);
-            return mongoTemplate.find(query, Recipe.class);
+        // candidates sharing the most bands come first, so the cap drops the least similar ones
+        var candidates = Aggregation.newAggregation(Recipe.class,
+                Aggregation.match(where("lshBuckets").in(buckets).and("id").ne(recipe.getId())),
+                context -> new Document("$addFields", new Document("bandHits",
+                        new Document("$size", new Document("$setIntersection", List.of("$lshBuckets", buckets))))),
+                context -> new Document("$sort", new Document("bandHits", -1)),
+                Aggregation.limit(MAX_SIMILAR_CANDIDATES),
+                Aggregation.project().andExclude("lshBuckets"));
+
+        return readMongoTemplate.aggregate(candidates, Recipe.class).getMappedResults()
+                .stream()
+                .map(candidate -> new SimilarRecipeDTO(RecipeDTO.toDTO(candidate),
+                        RecipeSignatures.jaccard(ingredients, IngredientNormalizer.normalize(candidate.getIngredients()))))
+                .sorted(Comparator.comparingDouble(SimilarRecipeDTO::similarity).reversed())
+                .limit(Math.min(Math.max(limit, 0), MAX_SIMILAR_CANDIDATES))
+                .toList();
+    }
+
+    public List<Recipe> filterCondition(String name,String category, Integer servings, String include, String exclude, String instructions) {
+        var filter = RecipeFilter.of(name, category, servings, include, exclude, instructions);
+        return recipeQueryCoalescer.execute(filter, () -> find(filter));
+    }
+
+    public RecipeCountDTO count(String name, String category, Integer servings, String include, String exclude, String instructions) {
+        var filter = RecipeFilter.of(name, category, servings, include, exclude, instructions);
+        if (filter.isEmpty()) {
+            Long total = readMongoTemplate.execute(Recipe.class, MongoCollection::estimatedDocumentCount);
+            return new RecipeCountDTO(total == null ? 0 : total, true);
         }
+        return new RecipeCountDTO(readMongoTemplate.count(filter.toQuery(), Recipe.class), false);
+    }
+
+    public RecipeExistsDTO exists(String name, String category, Integer servings, String include, String exclude, String instructions) {
+        var query = RecipeFilter.of(name, category, servings, include, exclude, instructions).toQuery().limit(1);
+        query.fields().include("id");
+        return new RecipeExistsDTO(!readMongoTemplate.find(query, Recipe.class).isEmpty());
+    }
+
+    public boolean existsById(String id) {
+        return recipeRepository.existsById(id);
+    }
 
-        return recipeRepository.findAll(sortByName);
+    private List<Recipe> find(RecipeFilter filter) {
+        Query query = filter.toQuery().with(Sort.by(Sort.Direction.ASC, "name"));
+        query.fields().exclude("lshBuckets");
+        return readMongoTemplate.find(query, Recipe.class);
     }
 
 }
@@ -0,0 +1,6 @@
+package com.abn.recipes.service.event;
+
+import com.abn.recipes.entity.Recipe;
+
+public record RecipeDeletedEvent(Recipe recipe) {
+}
@@ -0,0 +1,10 @@
+package com.abn.recipes.service.event;
+
+import com.abn.recipes.entity.Recipe;
+
+/**
+ * Published after a recipe is created or updated. {@code previous} is the stored version before
+ * an update and {@code null} for a create.
+ */
+public record RecipeSavedEvent(Recipe previous, Recipe recipe) {
+}
@@ -0,0 +1,7 @@
+package com.abn.recipes.service.exception;
+
+public class IndexWarmingException extends RuntimeException {
+    public IndexWarmingException(String message) {
+        super(message);
+    }
+}
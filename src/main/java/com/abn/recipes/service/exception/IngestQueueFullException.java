@@ -0,0 +1,7 @@
+package com.abn.recipes.service.exception;
+
+public class IngestQueueFullException extends RuntimeException {
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
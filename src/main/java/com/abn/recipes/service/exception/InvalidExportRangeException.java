@@ -0,0 +1,7 @@
+package com.abn.recipes.service.exception;
+
+public class InvalidExportRangeException extends RuntimeException {
+    public InvalidExportRangeException(String message) {
+        super(message);
+    }
+}
@@ -29,6 +29,42 @@ public class RestExceptionHandler {
         return new ErrorResponse(ex);
     }
 
+    @ExceptionHandler(IngestQueueFullException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    protected ErrorResponse handleIngestQueueFull(IngestQueueFullException ex) {
+        return new ErrorResponse(ex);
+    }
+
+    @ExceptionHandler(ExportLimitExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    protected ErrorResponse handleExportLimitExceeded(ExportLimitExceededException ex) {
+        return new ErrorResponse(ex);
+    }
+
+    @ExceptionHandler(InvalidExportRangeException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    protected ErrorResponse handleInvalidExportRange(InvalidExportRangeException ex) {
+        return new ErrorResponse(ex);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    protected ErrorResponse handleRateLimitExceeded(RateLimitExceededException ex) {
+        return new ErrorResponse(ex);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    protected ErrorResponse handleServiceOverloaded(ServiceOverloadedException ex) {
+        return new ErrorResponse(ex);
+    }
+
+    @ExceptionHandler(IndexWarmingException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    protected ErrorResponse handleIndexWarming(IndexWarmingException ex) {
+        return new ErrorResponse(ex);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     protected ErrorResponse handleInternalServerErrorRequest(Exception ex) {
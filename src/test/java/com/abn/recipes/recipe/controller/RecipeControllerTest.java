@@ -2,18 +2,36 @@ package com.abn.recipes.recipe.controller;
 
 import com.abn.recipes.entity.Recipe;
 import com.abn.recipes.repository.RecipeRepository;
+import com.abn.recipes.service.PantryIndex;
+import com.abn.recipes.service.RecipeSignatureBackfill;
+import com.abn.recipes.service.RecipeSuggestIndex;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.apache.http.HttpHeaders;
+import org.bson.Document;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.http.HttpStatus;
-
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,11 +43,35 @@ public class RecipeControllerTest {
     @Autowired
     private RecipeRepository recipeRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RecipeSignatureBackfill recipeSignatureBackfill;
+
+    @Autowired
+    private PantryIndex pantryIndex;
+
+    @Autowired
+    private RecipeSuggestIndex recipeSuggestIndex;
+
+    @Autowired
+    private HttpMessageConverters httpMessageConverters;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
     private static final String API_PATH = "/v1/recipe/";
 
     @BeforeEach
     public void clean() {
         recipeRepository.deleteAll();
+        // deleteAll bypasses the service, so the indexes only see it on a rebuild
+        pantryIndex.refresh();
+        recipeSuggestIndex.refresh();
     }
 
     @BeforeAll
@@ -86,6 +128,42 @@ public class RecipeControllerTest {
                 .statusCode(HttpStatus.CONFLICT.value());
     }
 
+    @Test
+    void createAsync() throws InterruptedException {
+        String[] chiliIngredients = { "100g chorizo , sliced", "400g can kidney beans" };
+        var recipeDTO = getRecipeEntity(                "Quick chilli",
+                "instructions Quick chilli", "VEGETARIAN", 2,chiliIngredients);
+
+        String id = given()
+                .body(recipeDTO)
+                .header(HttpHeaders.CONTENT_TYPE, ContentType.JSON)
+                .header("Idempotency-Key", "create-async")
+                .queryParam("async", "true")
+                .when()
+                .post(API_PATH)
+                .then()
+                .statusCode(HttpStatus.ACCEPTED.value())
+                .header(HttpHeaders.LOCATION, containsString("/v1/recipe/ingest/"))
+                .body("status", Matchers.is("PENDING"))
+                .extract()
+                .path("id");
+
+        String status = "PENDING";
+        for (int i = 0; i < 50 && "PENDING".equals(status); i++) {
+            Thread.sleep(100);
+            status = given()
+                    .when()
+                    .get(API_PATH + "ingest/" + id)
+                    .then()
+                    .statusCode(HttpStatus.OK.value())
+                    .extract()
+                    .path("status");
+        }
+
+        assertThat(status).isEqualTo("CREATED");
+        assertThat(recipeRepository.findById(id)).isPresent();
+    }
+
     @Test
     void update() {
         String[] chiliIngredients = { "100g chorizo , sliced", "400g can kidney beans" };
@@ -380,6 +458,348 @@ public class RecipeControllerTest {
                 .body("$", hasSize(2));
     }
 
+    @Test
+    void findSimilar() {
+        String[] saladIngredients = { "100g couscous", "2 spring onions", "50g feta cheese, cubed", "2tbsp pesto", "2tbsp pine nuts" };
+        var recipeSalad = getRecipeEntity("10-minute couscous salad",
+                "instructions 10-minute couscous salad", "VEGETARIAN", 2, saladIngredients);
+
+        String[] pepperSaladIngredients = { "200g couscous", "3 spring onions", "feta cheese", "pesto", "pine nuts", "1 red pepper" };
+        var recipePepperSalad = getRecipeEntity("Couscous salad with pepper",
+                "instructions couscous salad with pepper", "VEGETARIAN", 4, pepperSaladIngredients);
+
+        String[] chiliIngredients = { "100g chorizo , sliced", "400g can kidney beans" };
+        var recipeChili = getRecipeEntity("Quick chilli",
+                "instructions Quick chilli", "LOW_CARB", 2, chiliIngredients);
+
+        String id = given()
+                .body(recipeSalad)
+                .header(HttpHeaders.CONTENT_TYPE, ContentType.JSON)
+                .when()
+                .post(API_PATH)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .path("id");
+        for (var recipe : List.of(recipePepperSalad, recipeChili)) {
+            given()
+                    .body(recipe)
+                    .header(HttpHeaders.CONTENT_TYPE, ContentType.JSON)
+                    .when()
+                    .post(API_PATH)
+                    .then()
+                    .statusCode(HttpStatus.OK.value());
+        }
+
+        given()
+                .when()
+                .get(API_PATH + id + "/similar")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(1))
+                .body("[0].recipe.name", Matchers.is("Couscous salad with pepper"))
+                .body("[0].similarity", greaterThan(0.8f));
+    }
+
+    @Test
+    void findByPantry() {
+        String[] saladIngredients = { "100g couscous", "2 spring onions", "50g feta cheese, cubed" };
+        var recipeSalad = getRecipeEntity("Pantry couscous salad",
+                "instructions pantry couscous salad", "VEGETARIAN", 2, saladIngredients);
+
+        String[] chiliIngredients = { "100g chorizo , sliced", "400g can kidney beans", "2 spring onions" };
+        var recipeChili = getRecipeEntity("Pantry chilli",
+                "instructions pantry chilli", "LOW_CARB", 2, chiliIngredients);
+
+        for (var recipe : List.of(recipeSalad, recipeChili)) {
+            given()
+                    .body(recipe)
+                    .header(HttpHeaders.CONTENT_TYPE, ContentType.JSON)
+                    .when()
+                    .post(API_PATH)
+                    .then()
+                    .statusCode(HttpStatus.OK.value());
+        }
+
+        given()
+                .param("ingredients", "couscous,spring onions,feta cheese,chorizo")
+                .when()
+                .get(API_PATH + "pantry")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(2))
+                .body("[0].recipe.name", Matchers.is("Pantry couscous salad"))
+                .body("[0].coverage", Matchers.is(1.0f))
+                .body("[1].recipe.name", Matchers.is("Pantry chilli"))
+                .body("[1].missingIngredients", contains("kidney beans"));
+    }
+
+    @Test
+    void suggest() {
+        String[] saladIngredients = { "100g couscous", "2 spring onions", "50g feta cheese, cubed" };
+        var recipeSalad = getRecipeEntity("Suggested couscous salad",
+                "instructions suggested couscous salad", "VEGETARIAN", 2, saladIngredients);
+
+        given()
+                .body(recipeSalad)
+                .header(HttpHeaders.CONTENT_TYPE, ContentType.JSON)
+                .when()
+                .post(API_PATH)
+                .then()
+                .statusCode(HttpStatus.OK.value());
+
+        given()
+                .param("prefix", "sugg")
+                .when()
+                .get(API_PATH + "suggest")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(1))
+                .body("[0].text", Matchers.is("Suggested couscous salad"))
+                .body("[0].type", Matchers.is("NAME"));
+    }
+
+    @Test
+    void countAndExists() {
+        String[] saladIngredients = { "100g couscous", "2 spring onions" };
+        var recipeSaladDTO = getRecipeEntity("10-minute couscous salad",
+                "instructions 10-minute couscous salad", "VEGETARIAN", 2, saladIngredients);
+
+        String[] chiliIngredients = { "100g chorizo", "400g can kidney beans" };
+        var recipeChiliDTO = getRecipeEntity("Quick chilli",
+                "instructions Quick chilli", "LOW_CARB", 6, chiliIngredients);
+
+        recipeRepository.saveAll(List.of(recipeChiliDTO, recipeSaladDTO));
+
+        given()
+                .when()
+                .get(API_PATH + "count")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("count", Matchers.is(2))
+                .body("estimated", Matchers.is(true));
+
+        given()
+                .param("include", "couscous")
+                .when()
+                .get(API_PATH + "count")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("count", Matchers.is(1))
+                .body("estimated", Matchers.is(false));
+
+        given()
+                .param("name", "lasagne")
+                .when()
+                .get(API_PATH + "exists")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("exists", Matchers.is(false));
+
+        given()
+                .when()
+                .head(API_PATH + recipeChiliDTO.getId())
+                .then()
+                .statusCode(HttpStatus.OK.value());
+
+        given()
+                .when()
+                .head(API_PATH + "xpto")
+                .then()
+                .statusCode(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    void exportByPlannedPartitions() {
+        for (int i = 0; i < 10; i++) {
+            recipeRepository.save(getRecipeEntity("Exported recipe " + i,
+                    "instructions exported recipe " + i, "VEGETARIAN", 2, new String[]{ "100g couscous" }));
+        }
+        // client-supplied ids that are not ObjectIds must land in a partition too
+        var custom = getRecipeEntity("Exported recipe with custom id",
+                "instructions exported recipe with custom id", "VEGETARIAN", 2, new String[]{ "100g couscous" });
+        custom.setId("custom-recipe-id");
+        recipeRepository.save(custom);
+
+        List<Map<String, String>> plan = given()
+                .param("partitions", 3)
+                .when()
+                .get(API_PATH + "export/plan")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("[0].fromId", nullValue())
+                .extract()
+                .jsonPath()
+                .getList("$");
+        assertThat(plan).isNotEmpty();
+        assertThat(plan.get(plan.size() - 1).get("toId")).isNull();
+
+        List<String> lines = new ArrayList<>();
+        for (var partition : plan) {
+            var request = given();
+            if (partition.get("fromId") != null) {
+                request.param("fromId", partition.get("fromId"));
+            }
+            if (partition.get("toId") != null) {
+                request.param("toId", partition.get("toId"));
+            }
+            var body = request
+                    .param("partitions", 2)
+                    .when()
+                    .get(API_PATH + "export")
+                    .then()
+                    .statusCode(HttpStatus.OK.value())
+                    .extract()
+                    .asString();
+            body.lines().forEach(lines::add);
+        }
+
+        assertThat(lines).hasSize(11).allMatch(line -> line.contains("Exported recipe"))
+                .anyMatch(line -> line.contains("custom-recipe-id"));
+    }
+
+    @Test
+    void concurrentExports() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            recipeRepository.save(getRecipeEntity("Exported recipe " + i,
+                    "instructions exported recipe " + i, "VEGETARIAN", 2, new String[]{ "100g couscous" }));
+        }
+
+        // the first client reads one line and stalls while a second export runs start to finish
+        var connection = (HttpURLConnection) new URL(RestAssured.baseURI + API_PATH + "export?partitions=64").openConnection();
+        try (var slow = new BufferedReader(new InputStreamReader(new GZIPInputStream(connection.getInputStream()), StandardCharsets.UTF_8))) {
+            assertThat(slow.readLine()).contains("Exported recipe");
+
+            var second = CompletableFuture.supplyAsync(() -> given()
+                    .param("partitions", 64)
+                    .when()
+                    .get(API_PATH + "export")
+                    .then()
+                    .statusCode(HttpStatus.OK.value())
+                    .extract()
+                    .asString());
+            assertThat(second.get(30, TimeUnit.SECONDS).lines()).hasSize(30);
+
+            assertThat(slow.lines()).hasSize(29);
+        }
+    }
+
+    @Test
+    void exportWithInvalidBound() {
+        given()
+                .param("fromId", "custom-recipe-id")
+                .when()
+                .get(API_PATH + "export/plan")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    void findSimilarOfBackfilledRecipe() {
+        // written by an older version: full signature stored, no bands
+        var legacy = new Document("name", "10-minute couscous salad")
+                .append("instructions", "instructions 10-minute couscous salad")
+                .append("category", "VEGETARIAN")
+                .append("servings", 2)
+                .append("ingredients", List.of("100g couscous", "2 spring onions", "50g feta cheese, cubed", "2tbsp pesto"))
+                .append("minHash", List.of(1, 2, 3));
+        mongoTemplate.insert(legacy, "recipes");
+
+        String[] pepperSaladIngredients = { "200g couscous", "3 spring onions", "feta cheese", "pesto", "1 red pepper" };
+        String id = given()
+                .body(getRecipeEntity("Couscous salad with pepper",
+                        "instructions couscous salad with pepper", "VEGETARIAN", 4, pepperSaladIngredients))
+                .header(HttpHeaders.CONTENT_TYPE, ContentType.JSON)
+                .when()
+                .post(API_PATH)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .extract()
+                .path("id");
+
+        given()
+                .when()
+                .get(API_PATH + id + "/similar")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(0));
+
+        assertThat(recipeSignatureBackfill.backfill()).isEqualTo(1);
+
+        var stored = mongoTemplate.findById(legacy.getObjectId("_id"), Document.class, "recipes");
+        assertThat(stored).doesNotContainKey("minHash").containsKey("lshBuckets");
+        given()
+                .when()
+                .get(API_PATH + id + "/similar")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(1))
+                .body("[0].recipe.name", Matchers.is("10-minute couscous salad"));
+
+        given()
+                .param("limit", -1)
+                .when()
+                .get(API_PATH + id + "/similar")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("$", hasSize(0));
+    }
+
+    @Test
+    void findSimilarNonExistingId() {
+        given()
+                .when()
+                .get(API_PATH + "xpto/similar")
+                .then()
+                .statusCode(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    void filterNoConditionCbor() {
+        String[] saladIngredients = { "100g couscous", "2 spring onions", "100ml hot low salt vegetable stock (from a cube is fine)" };
+        var recipeSaladDTO = getRecipeEntity("10-minute couscous salad",
+                "instructions 10-minute couscous salad", "VEGETARIAN", 2,saladIngredients);
+
+        recipeRepository.save(recipeSaladDTO);
+
+        given()
+                .header(HttpHeaders.ACCEPT, "application/cbor")
+                .when()
+                .get(API_PATH )
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType("application/cbor");
+    }
+
+    @Test
+    void filterNoConditionSmile() {
+        String[] saladIngredients = { "100g couscous", "2 spring onions", "100ml hot low salt vegetable stock (from a cube is fine)" };
+        var recipeSaladDTO = getRecipeEntity("10-minute couscous salad",
+                "instructions 10-minute couscous salad", "VEGETARIAN", 2,saladIngredients);
+
+        recipeRepository.save(recipeSaladDTO);
+
+        given()
+                .header(HttpHeaders.ACCEPT, "application/x-jackson-smile")
+                .when()
+                .get(API_PATH )
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType("application/x-jackson-smile");
+    }
+
+    @Test
+    void binaryConvertersTakePrecedenceOverDefaults() {
+        assertThat(httpMessageConverters.getConverters())
+                .filteredOn(MappingJackson2CborHttpMessageConverter.class::isInstance)
+                .first()
+                .isSameAs(cborHttpMessageConverter);
+        assertThat(httpMessageConverters.getConverters())
+                .filteredOn(MappingJackson2SmileHttpMessageConverter.class::isInstance)
+                .first()
+                .isSameAs(smileHttpMessageConverter);
+    }
+
     public Recipe getRecipeEntity(String name, String instructions, String category, Integer servings, String[] ingredients) {
         return Recipe.builder()
                 .name(name)
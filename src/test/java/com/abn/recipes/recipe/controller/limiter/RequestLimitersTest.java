@@ -0,0 +1,110 @@
+package com.abn.recipes.recipe.controller.limiter;
+
+import com.abn.recipes.controller.limiter.AdaptiveConcurrencyLimiter;
+import com.abn.recipes.controller.limiter.ClientRateLimiter;
+import com.abn.recipes.controller.limiter.RequestLimitInterceptor;
+import com.abn.recipes.service.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestLimitersTest {
+
+    @Test
+    public void whenClientExceedsBurst_shouldRejectOnlyThatClient() {
+        var rateLimiter = new ClientRateLimiter(1, 2, 100);
+
+        assertThat(rateLimiter.tryAcquire("client-a")).isTrue();
+        assertThat(rateLimiter.tryAcquire("client-a")).isTrue();
+        assertThat(rateLimiter.tryAcquire("client-a")).isFalse();
+        assertThat(rateLimiter.tryAcquire("client-b")).isTrue();
+        assertThat(rateLimiter.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenMoreClientsThanMaxClients_shouldEvictLeastRecentlyUsed() {
+        var rateLimiter = new ClientRateLimiter(1, 1, 2);
+
+        rateLimiter.tryAcquire("client-a");
+        rateLimiter.tryAcquire("client-b");
+        assertThat(rateLimiter.tryAcquire("client-a")).isFalse();
+        rateLimiter.tryAcquire("client-c");
+
+        assertThat(rateLimiter.trackedClients()).isEqualTo(2);
+        assertThat(rateLimiter.tryAcquire("client-a")).isFalse();
+        assertThat(rateLimiter.tryAcquire("client-b")).isTrue();
+    }
+
+    @Test
+    public void whenMoreClientsThanMaxClients_shouldEvictRefilledBucketBeforeThrottledOne() throws InterruptedException {
+        var rateLimiter = new ClientRateLimiter(10, 2, 2);
+
+        rateLimiter.tryAcquire("client-a");
+        assertThat(rateLimiter.tryAcquire("client-a")).isTrue();
+        assertThat(rateLimiter.tryAcquire("client-b")).isTrue();
+        // client-b refills its one token, client-a is still short of its burst
+        Thread.sleep(150);
+        rateLimiter.tryAcquire("client-c");
+
+        assertThat(rateLimiter.trackedClients()).isEqualTo(2);
+        assertThat(rateLimiter.tryAcquire("client-a")).isTrue();
+        assertThat(rateLimiter.tryAcquire("client-a")).isFalse();
+    }
+
+    @Test
+    public void whenClientRotatesHeaders_shouldStillBeLimitedByAddress() {
+        var interceptor = new RequestLimitInterceptor(new ClientRateLimiter(1, 1, 100),
+                new AdaptiveConcurrencyLimiter(10, 1, 10));
+
+        var first = new MockHttpServletRequest();
+        first.addHeader("X-Client-Id", "client-1");
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+
+        var second = new MockHttpServletRequest();
+        second.addHeader("X-Client-Id", "client-2");
+        assertThatThrownBy(() -> interceptor.preHandle(second, new MockHttpServletResponse(), null))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    public void whenConcurrencyLimitReached_shouldRejectUntilReleased() {
+        var concurrencyLimiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        assertThat(concurrencyLimiter.tryAcquire()).isTrue();
+        assertThat(concurrencyLimiter.tryAcquire()).isTrue();
+        assertThat(concurrencyLimiter.tryAcquire()).isFalse();
+
+        concurrencyLimiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertThat(concurrencyLimiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void whenLatencyIncreasesUnderLoad_shouldLowerTheLimit() {
+        var concurrencyLimiter = new AdaptiveConcurrencyLimiter(20, 1, 200);
+
+        saturate(concurrencyLimiter, TimeUnit.MILLISECONDS.toNanos(10), 200);
+        int steadyLimit = concurrencyLimiter.limit();
+
+        saturate(concurrencyLimiter, TimeUnit.MILLISECONDS.toNanos(100), 50);
+
+        assertThat(concurrencyLimiter.limit()).isLessThan(steadyLimit);
+    }
+
+    private void saturate(AdaptiveConcurrencyLimiter concurrencyLimiter, long rttNanos, int samples) {
+        while (concurrencyLimiter.tryAcquire()) {
+            // fill up to the current limit
+        }
+        for (int i = 0; i < samples; i++) {
+            concurrencyLimiter.release(rttNanos);
+            while (concurrencyLimiter.tryAcquire()) {
+                // keep the limiter saturated as the limit moves
+            }
+        }
+    }
+}
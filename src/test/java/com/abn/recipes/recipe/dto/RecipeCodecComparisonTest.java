@@ -0,0 +1,52 @@
+package com.abn.recipes.recipe.dto;
+
+import com.abn.recipes.dto.RecipeDTO;
+import com.abn.recipes.entity.Recipe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecipeCodecComparisonTest {
+
+    private static final int RECIPES = 1_000;
+
+    @Test
+    public void binaryEncodings_shouldBeSmallerThanJson() throws Exception {
+        var recipes = getRecipes();
+
+        var json = new ObjectMapper().writeValueAsBytes(recipes);
+
+        assertThat(new CBORMapper().writeValueAsBytes(recipes)).hasSizeLessThan(json.length);
+        assertThat(new SmileMapper().writeValueAsBytes(recipes)).hasSizeLessThan(json.length);
+    }
+
+    @Test
+    public void binaryEncodings_shouldRoundTrip() throws Exception {
+        var recipes = getRecipes();
+
+        for (ObjectMapper mapper : List.of(new ObjectMapper(), new CBORMapper(), new SmileMapper())) {
+            var decoded = mapper.readValue(mapper.writeValueAsBytes(recipes), Recipe[].class);
+            assertThat(Arrays.stream(decoded).map(RecipeDTO::toDTO)).containsExactlyElementsOf(recipes);
+        }
+    }
+
+    private List<RecipeDTO> getRecipes() {
+        return IntStream.range(0, RECIPES)
+                .mapToObj(i -> RecipeDTO.builder()
+                        .id(Integer.toHexString(i))
+                        .name("Recipe " + i)
+                        .instructions("Tip the couscous into a large bowl and pour over the stock. Cover, then leave for 10 mins until fluffy.")
+                        .category(i % 2 == 0 ? "VEGETARIAN" : "LOW_CARB")
+                        .servings(i % 6 + 1)
+                        .ingredients(List.of("100g couscous", "2 spring onions", "1 red pepper", "50g feta cheese, cubed"))
+                        .build())
+                .toList();
+    }
+}
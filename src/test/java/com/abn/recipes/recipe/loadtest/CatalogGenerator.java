@@ -0,0 +1,97 @@
+package com.abn.recipes.recipe.loadtest;
+
+import com.abn.recipes.entity.Recipe;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic synthetic catalog of recipes, ingredients and categories.
+ */
+public class CatalogGenerator {
+
+    public static final List<String> CATEGORIES = List.of(
+            "VEGETARIAN", "VEGAN", "LOW_CARB", "GLUTEN_FREE", "DAIRY_FREE", "HIGH_PROTEIN");
+
+    private static final String[] BASE_INGREDIENTS = {
+            "couscous", "spring onions", "vegetable stock", "red pepper", "cucumber", "feta cheese",
+            "pesto", "pine nuts", "chorizo", "kidney beans", "chopped tomatoes", "garlic", "olive oil",
+            "rice", "chicken breast", "salmon", "lentils", "chickpeas", "spinach", "mushrooms", "basil",
+            "parmesan", "pasta", "butter", "flour", "eggs", "milk", "lemon", "ginger", "coconut milk",
+            "tofu", "broccoli", "carrots", "potatoes", "sweet potato", "beef mince", "cumin", "paprika",
+            "coriander", "yoghurt", "honey", "soy sauce", "noodles", "avocado", "lime", "chilli", "oats",
+            "almonds", "cheddar", "mozzarella"};
+
+    private static final String[] VARIANTS = {
+            "", "fresh ", "dried ", "smoked ", "roasted ", "frozen ", "organic ", "wild ", "baby ", "ground "};
+
+    private static final String[] QUANTITIES = {
+            "100g ", "200g ", "2 ", "1 ", "½ ", "2tbsp ", "1tsp ", "400g can ", "150ml ", "a pinch of "};
+
+    private static final String[] WORDS = {
+            "tip", "the", "into", "a", "large", "bowl", "pour", "over", "stock", "cover", "leave", "until",
+            "fluffy", "slice", "dice", "add", "fork", "through", "crumble", "sprinkle", "serve", "simmer",
+            "boil", "roast", "fry", "stir", "season", "bake", "chop", "mix"};
+
+    private final List<String> ingredients;
+
+    public CatalogGenerator(int ingredientCount) {
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 0; names.size() < ingredientCount; i++) {
+            var variant = VARIANTS[(i / BASE_INGREDIENTS.length) % VARIANTS.length];
+            var suffix = i < BASE_INGREDIENTS.length * VARIANTS.length ? "" : " " + (i / (BASE_INGREDIENTS.length * VARIANTS.length));
+            names.add(variant + BASE_INGREDIENTS[i % BASE_INGREDIENTS.length] + suffix);
+        }
+        this.ingredients = List.copyOf(names);
+    }
+
+    public List<String> ingredients() {
+        return ingredients;
+    }
+
+    public Recipe recipe(Random random, String name) {
+        int ingredientCount = 3 + random.nextInt(10);
+        List<String> recipeIngredients = new ArrayList<>(ingredientCount);
+        for (int i = 0; i < ingredientCount; i++) {
+            recipeIngredients.add(QUANTITIES[random.nextInt(QUANTITIES.length)] + ingredient(random));
+        }
+
+        var instructions = new StringBuilder();
+        for (int i = 0, words = 20 + random.nextInt(60); i < words; i++) {
+            instructions.append(i == 0 ? "" : " ").append(word(random));
+        }
+
+        return Recipe.builder()
+                .name(name)
+                .instructions(instructions.toString())
+                .category(category(random))
+                .servings(1 + random.nextInt(8))
+                .ingredients(recipeIngredients)
+                .build();
+    }
+
+    public List<Recipe> catalog(Random random, int count) {
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recipes.add(recipe(random, "Synthetic recipe " + i + " " + word(random)));
+        }
+        return recipes;
+    }
+
+    public String ingredient(Random random) {
+        // skewed towards the first ingredients, like real pantry staples
+        int index = (int) (Math.pow(random.nextDouble(), 2) * ingredients.size());
+        return ingredients.get(index);
+    }
+
+    public String category(Random random) {
+        return CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+    }
+
+    public String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
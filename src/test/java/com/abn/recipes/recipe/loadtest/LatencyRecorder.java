@@ -0,0 +1,64 @@
+package com.abn.recipes.recipe.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples for one operation. Samples are kept in full, which is fine for the
+ * request counts a local run produces and keeps the percentiles exact.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+
+    private int size;
+
+    private long errors;
+
+    public synchronized void record(long latencyNanos, boolean error) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = latencyNanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, errors);
+    }
+
+    public record Snapshot(long[] sorted, long errors) {
+
+        public int count() {
+            return sorted.length;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        public double errorRate() {
+            return sorted.length == 0 ? 0 : (double) errors / sorted.length;
+        }
+
+        public static Snapshot merge(Iterable<Snapshot> snapshots) {
+            long[] merged = new long[0];
+            long errors = 0;
+            for (Snapshot snapshot : snapshots) {
+                int offset = merged.length;
+                merged = Arrays.copyOf(merged, offset + snapshot.sorted.length);
+                System.arraycopy(snapshot.sorted, 0, merged, offset, snapshot.sorted.length);
+                errors += snapshot.errors;
+            }
+            Arrays.sort(merged);
+            return new Snapshot(merged, errors);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.abn.recipes.recipe.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Load test knobs, read from {@code -Dloadtest.*} system properties.
+ */
+public record LoadTestSettings(int recipes,
+                               int ingredients,
+                               long seed,
+                               int rate,
+                               int threads,
+                               Duration warmup,
+                               Duration duration,
+                               Duration sloP50,
+                               Duration sloP99,
+                               Duration sloP999,
+                               double sloMinThroughput,
+                               double sloMaxErrorRate) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        int rate = Integer.getInteger("loadtest.rate", 200);
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.recipes", 10_000),
+                Integer.getInteger("loadtest.ingredients", 500),
+                Long.getLong("loadtest.seed", 42L),
+                rate,
+                Integer.getInteger("loadtest.threads", 32),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5L)),
+                Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30L)),
+                Duration.ofMillis(Long.getLong("loadtest.slo.p50-millis", 25L)),
+                Duration.ofMillis(Long.getLong("loadtest.slo.p99-millis", 250L)),
+                Duration.ofMillis(Long.getLong("loadtest.slo.p999-millis", 1_000L)),
+                Double.parseDouble(System.getProperty("loadtest.slo.min-throughput", String.valueOf(rate * 0.95))),
+                Double.parseDouble(System.getProperty("loadtest.slo.max-error-rate", "0.001")));
+    }
+}
@@ -0,0 +1,356 @@
+package com.abn.recipes.recipe.loadtest;
+
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.repository.RecipeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives a mixed create/update/delete/find workload at a fixed arrival rate against the
+ * running application backed by an embedded Mongo, and checks the latency SLOs. A second run
+ * saturates the server with the find workload once per response encoding and reports their
+ * throughput side by side.
+ * <p>
+ * Latency is measured from the scheduled start of each request, so time spent waiting for a
+ * free worker counts against the SLO. Run with {@code mvn test -Pload-test}; the embedded mongod
+ * is started before the context, or {@code -Dloadtest.mongo.url} points the run at an existing
+ * server instead.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration",
+        "database.mongodb.name=load-test-recipe",
+        "recipes.limits.enabled=false",
+        "logging.level.com.abn.recipes=WARN"
+})
+public class RecipeLoadTest {
+
+    private static final int FILTER_COMBINATIONS = 1 << 6;
+
+    private static final List<String> ENCODINGS = List.of("application/json", "application/cbor", "application/x-jackson-smile");
+
+    private static MongodExecutable mongod;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    private final List<String> ids = new ArrayList<>();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private CatalogGenerator generator;
+
+    private String baseUri;
+
+    /**
+     * MongoConfig builds its client from {@code database.mongodb.url}, so the server has to be
+     * running, and its address known, before the context starts.
+     */
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) throws IOException {
+        var url = System.getProperty("loadtest.mongo.url");
+        if (url == null) {
+            var net = new Net();
+            mongod = MongodStarter.getDefaultInstance().prepare(MongodConfig.builder()
+                    .version(Version.Main.V5_0)
+                    .net(net)
+                    .build());
+            mongod.start();
+            url = "mongodb://localhost:" + net.getPort() + "/";
+        }
+        var mongoUrl = url;
+        registry.add("database.mongodb.url", () -> mongoUrl);
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongod != null) {
+            mongod.stop();
+        }
+    }
+
+    @BeforeEach
+    public void seed() {
+        recipeRepository.deleteAll();
+        generator = new CatalogGenerator(settings.ingredients());
+        baseUri = "http://localhost:" + port + "/api/v1/recipe";
+
+        var catalog = generator.catalog(new Random(settings.seed()), settings.recipes());
+        for (int from = 0; from < catalog.size(); from += 1_000) {
+            recipeRepository.saveAll(catalog.subList(from, Math.min(catalog.size(), from + 1_000)))
+                    .forEach(r -> ids.add(r.getId()));
+        }
+    }
+
+    @Test
+    public void mixedWorkload_shouldMeetLatencySlo() throws Exception {
+        run(settings.warmup());
+        recorders.clear();
+
+        var elapsed = run(settings.duration());
+
+        Map<String, LatencyRecorder.Snapshot> snapshots = new TreeMap<>();
+        recorders.forEach((operation, recorder) -> snapshots.put(operation, recorder.snapshot()));
+        var total = LatencyRecorder.Snapshot.merge(snapshots.values());
+        snapshots.put("total", total);
+
+        double seconds = elapsed.toNanos() / 1e9;
+        System.out.printf("%-8s %8s %10s %10s %10s %10s %8s%n", "op", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        snapshots.forEach((operation, snapshot) -> System.out.printf("%-8s %8d %10.1f %10.2f %10.2f %10.2f %8d%n",
+                operation, snapshot.count(), snapshot.count() / seconds,
+                millis(snapshot.percentileNanos(0.50)),
+                millis(snapshot.percentileNanos(0.99)),
+                millis(snapshot.percentileNanos(0.999)),
+                snapshot.errors()));
+
+        assertThat(total.count() / seconds).as("throughput (req/s)").isGreaterThanOrEqualTo(settings.sloMinThroughput());
+        assertThat(total.errorRate()).as("error rate").isLessThanOrEqualTo(settings.sloMaxErrorRate());
+        assertThat(total.percentileNanos(0.50)).as("p50 latency (ns)").isLessThanOrEqualTo(settings.sloP50().toNanos());
+        assertThat(total.percentileNanos(0.99)).as("p99 latency (ns)").isLessThanOrEqualTo(settings.sloP99().toNanos());
+        assertThat(total.percentileNanos(0.999)).as("p99.9 latency (ns)").isLessThanOrEqualTo(settings.sloP999().toNanos());
+    }
+
+    /**
+     * Runs the find workload closed-loop, each worker sending its next request as soon as the
+     * previous one completes, once per encoding, so that the throughput of each is comparable.
+     */
+    @Test
+    public void findWorkload_shouldCompareEncodings() throws Exception {
+        Map<String, LatencyRecorder.Snapshot> snapshots = new LinkedHashMap<>();
+        Map<String, Long> bytes = new HashMap<>();
+        Map<String, Duration> elapsed = new HashMap<>();
+        for (String mediaType : ENCODINGS) {
+            saturate(mediaType, settings.warmup(), new LongAdder());
+            var received = new LongAdder();
+            long start = System.nanoTime();
+            snapshots.put(mediaType, saturate(mediaType, settings.duration(), received));
+            elapsed.put(mediaType, Duration.ofNanos(System.nanoTime() - start));
+            bytes.put(mediaType, received.sum());
+        }
+
+        System.out.printf("%-28s %8s %10s %10s %10s %12s %8s%n", "encoding", "count", "req/s", "p50 ms", "p99 ms", "bytes/req", "errors");
+        snapshots.forEach((mediaType, snapshot) -> System.out.printf("%-28s %8d %10.1f %10.2f %10.2f %12d %8d%n",
+                mediaType, snapshot.count(), snapshot.count() / (elapsed.get(mediaType).toNanos() / 1e9),
+                millis(snapshot.percentileNanos(0.50)),
+                millis(snapshot.percentileNanos(0.99)),
+                snapshot.count() == 0 ? 0 : bytes.get(mediaType) / snapshot.count(),
+                snapshot.errors()));
+
+        snapshots.forEach((mediaType, snapshot) -> {
+            assertThat(snapshot.count()).as("%s requests", mediaType).isPositive();
+            assertThat(snapshot.errorRate()).as("%s error rate", mediaType).isLessThanOrEqualTo(settings.sloMaxErrorRate());
+        });
+    }
+
+    private LatencyRecorder.Snapshot saturate(String mediaType, Duration duration, LongAdder received) throws InterruptedException {
+        var recorder = new LatencyRecorder();
+        var workers = Executors.newFixedThreadPool(settings.threads());
+        long end = System.nanoTime() + duration.toNanos();
+
+        for (int i = 0; i < settings.threads(); i++) {
+            workers.execute(() -> {
+                var random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    boolean error;
+                    try {
+                        var request = HttpRequest.newBuilder(findUri(random)).header("Accept", mediaType).GET().build();
+                        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        received.add(response.body().length);
+                        error = isError(response.statusCode());
+                    } catch (Exception e) {
+                        error = true;
+                    }
+                    recorder.record(System.nanoTime() - start, error);
+                }
+            });
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(duration.toMillis() + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS);
+        return recorder.snapshot();
+    }
+
+    private Duration run(Duration duration) throws InterruptedException {
+        var workers = Executors.newFixedThreadPool(settings.threads());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long scheduledAt = start; scheduledAt < end; scheduledAt += intervalNanos) {
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final long requestScheduledAt = scheduledAt;
+            workers.execute(() -> execute(requestScheduledAt));
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private void execute(long scheduledAt) {
+        var random = ThreadLocalRandom.current();
+        int dice = random.nextInt(100);
+        String operation = dice < 80 ? "find" : dice < 90 ? "create" : dice < 97 ? "update" : "delete";
+        boolean error;
+        try {
+            error = switch (operation) {
+                case "create" -> create(random);
+                case "update" -> update(random);
+                case "delete" -> delete(random);
+                default -> find(random);
+            };
+        } catch (Exception e) {
+            error = true;
+        }
+        recorders.computeIfAbsent(operation, o -> new LatencyRecorder())
+                .record(System.nanoTime() - scheduledAt, error);
+    }
+
+    private boolean find(Random random) throws Exception {
+        var request = HttpRequest.newBuilder(findUri(random)).GET().build();
+        return isError(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    private URI findUri(Random random) {
+        int filters = random.nextInt(FILTER_COMBINATIONS);
+        var query = new StringJoiner("&", "?", "").setEmptyValue("");
+        if ((filters & 1) != 0) {
+            query.add("name=" + encode(generator.word(random)));
+        }
+        if ((filters & 2) != 0) {
+            query.add("servings=" + (1 + random.nextInt(8)));
+        }
+        if ((filters & 4) != 0) {
+            query.add("exclude=" + encode(generator.ingredient(random)));
+        }
+        if ((filters & 8) != 0) {
+            query.add("include=" + encode(generator.ingredient(random)));
+        }
+        if ((filters & 16) != 0) {
+            query.add("category=" + encode(generator.category(random)));
+        }
+        if ((filters & 32) != 0) {
+            query.add("instructions=" + encode(generator.word(random)));
+        }
+
+        return URI.create(baseUri + query);
+    }
+
+    private boolean create(Random random) throws Exception {
+        var recipe = generator.recipe(random, "Load recipe " + UUID.randomUUID());
+        var request = HttpRequest.newBuilder(URI.create(baseUri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(recipe)))
+                .build();
+
+        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+            var id = objectMapper.readValue(response.body(), Recipe.class).getId();
+            synchronized (ids) {
+                ids.add(id);
+            }
+        }
+        return isError(response.statusCode());
+    }
+
+    private boolean update(Random random) throws Exception {
+        String id;
+        synchronized (ids) {
+            if (ids.isEmpty()) {
+                return find(random);
+            }
+            id = ids.get(random.nextInt(ids.size()));
+        }
+
+        var recipe = generator.recipe(random, "Load recipe " + UUID.randomUUID());
+        var request = HttpRequest.newBuilder(URI.create(baseUri + "/" + id))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(recipe)))
+                .build();
+        return isError(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    private boolean delete(Random random) throws Exception {
+        String id;
+        synchronized (ids) {
+            if (ids.isEmpty()) {
+                return find(random);
+            }
+            int index = random.nextInt(ids.size());
+            id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+        }
+
+        var request = HttpRequest.newBuilder(URI.create(baseUri + "/" + id)).DELETE().build();
+        return isError(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    private static boolean isError(int statusCode) {
+        // 404s are expected when an update races a delete of the same recipe
+        return statusCode >= 500 || (statusCode >= 400 && statusCode != 404);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
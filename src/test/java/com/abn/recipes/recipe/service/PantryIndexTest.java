@@ -0,0 +1,150 @@
+package com.abn.recipes.recipe.service;
+
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.PantryIndex;
+import com.abn.recipes.service.event.RecipeDeletedEvent;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import com.abn.recipes.service.exception.IndexWarmingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PantryIndexTest {
+
+    private static final Set<String> PANTRY = Set.of("eggs", "feta cheese", "spring onions", "couscous");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private PantryIndex pantryIndex;
+
+    @BeforeEach
+    public void setUp() {
+        pantryIndex = new PantryIndex(mongoTemplate, Duration.ofMinutes(5));
+        when(mongoTemplate.stream(any(Query.class), eq(Recipe.class))).thenReturn(stream());
+        pantryIndex.refresh();
+        save("salad", "100g couscous", "2 spring onions", "50g feta cheese, cubed", "2tbsp pesto");
+        save("chilli", "100g chorizo , sliced", "400g can kidney beans", "2 spring onions");
+        save("omelette", "3 eggs", "50g feta cheese");
+    }
+
+    @Test
+    public void whenMatchPantry_shouldRankByCoverageThenMissing() {
+        var matches = pantryIndex.match(PANTRY, 10);
+
+        assertThat(matches).extracting(PantryIndex.Match::id).containsExactly("omelette", "salad", "chilli");
+        assertThat(matches.get(0).coverage()).isEqualTo(1.0);
+        assertThat(matches.get(1).missing()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenMatchWithLimit_shouldReturnBestMatchesOnly() {
+        var matches = pantryIndex.match(PANTRY, 1);
+
+        assertThat(matches).extracting(PantryIndex.Match::id).containsExactly("omelette");
+    }
+
+    @Test
+    public void whenManyIngredientsMatch_shouldCountEachOfThem() {
+        save("stew", "onion", "carrot", "celery", "garlic", "thyme", "stock", "beef");
+        save("soup", "onion", "carrot", "celery", "stock", "lentils");
+
+        var matches = pantryIndex.match(Set.of("onion", "carrot", "celery", "garlic", "thyme", "stock", "lentils"), 10);
+
+        assertThat(matches).containsExactly(new PantryIndex.Match("soup", 5, 5), new PantryIndex.Match("stew", 6, 7));
+    }
+
+    @Test
+    public void whenRecipeUpdatedOrDeleted_shouldReflectNewIngredients() {
+        save("omelette", "3 eggs", "1 red pepper");
+        pantryIndex.onDeleted(new RecipeDeletedEvent(Recipe.builder().id("chilli").build()));
+
+        var matches = pantryIndex.match(Set.of("feta cheese", "spring onions"), 10);
+
+        assertThat(matches).extracting(PantryIndex.Match::id).containsExactly("salad");
+    }
+
+    @Test
+    public void whenRecipeDeleted_shouldReuseItsOrdinal() {
+        pantryIndex.onDeleted(new RecipeDeletedEvent(Recipe.builder().id("chilli").build()));
+        save("frittata", "4 eggs", "1 courgette");
+
+        assertThat(pantryIndex.ordinalCount()).isEqualTo(3);
+        assertThat(pantryIndex.match(Set.of("eggs"), 10)).extracting(PantryIndex.Match::id)
+                .containsExactlyInAnyOrder("omelette", "frittata");
+    }
+
+    @Test
+    public void whenRefreshed_shouldDropRecipesDeletedElsewhere() {
+        when(mongoTemplate.stream(any(Query.class), eq(Recipe.class)))
+                .thenReturn(stream(getRecipe("omelette", "3 eggs", "50g feta cheese")));
+
+        pantryIndex.refresh();
+
+        assertThat(pantryIndex.match(PANTRY, 10)).extracting(PantryIndex.Match::id).containsExactly("omelette");
+    }
+
+    @Test
+    public void whenSavedDuringRefresh_shouldKeepRecipe() {
+        when(mongoTemplate.stream(any(Query.class), eq(Recipe.class))).thenAnswer(invocation -> {
+            save("frittata", "4 eggs", "1 courgette");
+            return stream(getRecipe("omelette", "3 eggs", "50g feta cheese"));
+        });
+
+        pantryIndex.refresh();
+
+        assertThat(pantryIndex.match(Set.of("eggs"), 10)).extracting(PantryIndex.Match::id)
+                .containsExactlyInAnyOrder("omelette", "frittata");
+    }
+
+    @Test
+    public void whenNotLoaded_shouldReportWarming() {
+        var index = new PantryIndex(mongoTemplate, Duration.ofMinutes(5));
+
+        assertThat(index.isReady()).isFalse();
+        assertThatThrownBy(() -> index.match(PANTRY, 10)).isInstanceOf(IndexWarmingException.class);
+    }
+
+    private void save(String id, String... ingredients) {
+        pantryIndex.onSaved(new RecipeSavedEvent(null, getRecipe(id, ingredients)));
+    }
+
+    private static Recipe getRecipe(String id, String... ingredients) {
+        return Recipe.builder().id(id).ingredients(List.of(ingredients)).build();
+    }
+
+    static CloseableIterator<Recipe> stream(Recipe... recipes) {
+        var iterator = List.of(recipes).iterator();
+        return new CloseableIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Recipe next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.abn.recipes.recipe.service;
+
+import com.abn.recipes.dto.RecipeDTO;
+import com.abn.recipes.dto.RecipeIngestStatus;
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.RecipeIngestQueue;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import com.abn.recipes.service.exception.IngestQueueFullException;
+import com.abn.recipes.service.exception.ResourceNotFoundException;
+import com.abn.recipes.service.exception.ServiceOverloadedException;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RecipeIngestQueueTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private RecipeIngestQueue recipeIngestQueue;
+
+    @BeforeEach
+    public void setUp() {
+        // drain thread is not started, so the queue only fills up
+        recipeIngestQueue = new RecipeIngestQueue(mongoTemplate, eventPublisher, 1, 10, 100);
+    }
+
+    @Test
+    public void whenSubmitRecipe_shouldReturnPendingStatusWithId() {
+        var status = recipeIngestQueue.submit(getRecipeDTO("Quick chilli"), null);
+
+        assertThat(status.id()).isNotBlank();
+        assertThat(status.status()).isEqualTo(RecipeIngestStatus.Status.PENDING);
+        assertThat(recipeIngestQueue.status(status.id())).isEqualTo(status);
+    }
+
+    @Test
+    public void whenSubmitWithSameIdempotencyKey_shouldReturnSameRecipe() {
+        var first = recipeIngestQueue.submit(getRecipeDTO("Quick chilli"), "key-1");
+        var retry = recipeIngestQueue.submit(getRecipeDTO("Quick chilli"), "key-1");
+
+        assertThat(retry.id()).isEqualTo(first.id());
+    }
+
+    @Test
+    public void whenStopped_shouldFailQueuedRecipesAndRejectNewOnes() throws InterruptedException {
+        var queued = recipeIngestQueue.submit(getRecipeDTO("Quick chilli"), null);
+
+        recipeIngestQueue.stop();
+
+        assertThat(recipeIngestQueue.status(queued.id()).status()).isEqualTo(RecipeIngestStatus.Status.FAILED);
+        assertThatThrownBy(() -> recipeIngestQueue.submit(getRecipeDTO("10-minute couscous salad"), null))
+                .isInstanceOf(ServiceOverloadedException.class);
+    }
+
+    @Test
+    public void whenQueueIsFull_shouldThrowIngestQueueFullException() {
+        recipeIngestQueue.submit(getRecipeDTO("Quick chilli"), null);
+
+        assertThatThrownBy(() -> recipeIngestQueue.submit(getRecipeDTO("10-minute couscous salad"), null))
+                .isInstanceOf(IngestQueueFullException.class);
+    }
+
+    @Test
+    public void whenStatusOfUnknownId_shouldThrowResourceNotFoundException() {
+        assertThatThrownBy(() -> recipeIngestQueue.status("xpto"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    public void whenPartOfBatchIsRejected_shouldFailOnlyRejectedRecipes() throws Exception {
+        var duplicate = new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Recipe.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("E11000 duplicate key",
+                new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(duplicate), null, new ServerAddress())));
+
+        var queue = new RecipeIngestQueue(mongoTemplate, eventPublisher, 10, 10, 100);
+        var statuses = List.of(
+                queue.submit(getRecipeDTO("Quick chilli"), null),
+                queue.submit(getRecipeDTO("10-minute couscous salad"), null),
+                queue.submit(getRecipeDTO("Pesto pasta"), null));
+
+        queue.start();
+        try {
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (statuses.stream().anyMatch(s -> queue.status(s.id()).status() == RecipeIngestStatus.Status.PENDING)
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            queue.stop();
+        }
+
+        assertThat(statuses).extracting(s -> queue.status(s.id()).status()).containsExactly(
+                RecipeIngestStatus.Status.CREATED, RecipeIngestStatus.Status.FAILED, RecipeIngestStatus.Status.CREATED);
+        verify(eventPublisher, times(2)).publishEvent(any(RecipeSavedEvent.class));
+    }
+
+    private RecipeDTO getRecipeDTO(String name) {
+        return RecipeDTO.builder()
+                .name(name)
+                .instructions("instructions " + name)
+                .category("VEGETARIAN")
+                .servings(2)
+                .ingredients(List.of("100g chorizo , sliced", "400g can kidney beans"))
+                .build();
+    }
+}
@@ -2,20 +2,30 @@ package com.abn.recipes.recipe.service;
 
 import com.abn.recipes.entity.Recipe;
 import com.abn.recipes.repository.RecipeRepository;
+import com.abn.recipes.service.PantryIndex;
+import com.abn.recipes.service.RecipeQueryCoalescer;
+import com.abn.recipes.service.RecipeSuggestIndex;
 import com.abn.recipes.service.RecipesService;
+import com.abn.recipes.service.event.RecipeDeletedEvent;
 import com.abn.recipes.service.exception.ResourceAlreadyExistException;
 import com.abn.recipes.service.exception.ResourceNotFoundException;
+import com.abn.recipes.dto.RecipeCountDTO;
 import com.abn.recipes.dto.RecipeDTO;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.CollectionCallback;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -33,7 +43,19 @@ public class RecipeServiceTest {
     private RecipeRepository recipeRepository;
 
     @Mock
-    private MongoTemplate mongoTemplate;
+    private MongoTemplate readMongoTemplate;
+
+    @Spy
+    private RecipeQueryCoalescer recipeQueryCoalescer = new RecipeQueryCoalescer();
+
+    @Mock
+    private PantryIndex pantryIndex;
+
+    @Mock
+    private RecipeSuggestIndex recipeSuggestIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @Captor
     private ArgumentCaptor<Recipe> recipeArgumentCaptor;
@@ -77,6 +99,7 @@ public class RecipeServiceTest {
 
         Recipe savedEntity = recipeArgumentCaptor.getValue();
         assertEquals(toUpdateRecipe.getName(), savedEntity.getName());
+        verifyNoInteractions(readMongoTemplate);
     }
 
     @Test
@@ -98,6 +121,15 @@ public class RecipeServiceTest {
         when(recipeRepository.findById(ID)).thenReturn(recipe);
         recipeService.delete(ID);
         verify(recipeRepository, times(1)).deleteById(anyString());
+        verifyNoInteractions(readMongoTemplate);
+    }
+
+    @Test
+    public void whenDeleteRecipe_shouldPublishDeletedEvent() {
+        var recipe = Recipe.builder().id(ID).build();
+        when(recipeRepository.findById(ID)).thenReturn(Optional.of(recipe));
+        recipeService.delete(ID);
+        verify(eventPublisher, times(1)).publishEvent(new RecipeDeletedEvent(recipe));
     }
 
     @Test
@@ -110,14 +142,20 @@ public class RecipeServiceTest {
     public void whenNoFilterConditionsIsPresent_shouldReturnAllRecipes() {
         recipeService.filterCondition(null,null, null, null, null, null);
 
-        verify(recipeRepository, times(1)).findAll(any(Sort.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+
+        Query query = queryArgumentCaptor.getValue();
+        assertThat(query.getQueryObject()).isEmpty();
+        assertThat(query.getSortObject()).containsKey("name");
+        assertThat(query.getFieldsObject()).containsEntry("lshBuckets", 0);
+        verifyNoInteractions(recipeRepository);
     }
 
     @Test
     public void whenNameFilterConditionsIsPresent_shouldReturnRecipesFilteredByCategory() {
         recipeService.filterCondition("couscous",null, null, null, null, null);
 
-        verify(mongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
 
         Query query = queryArgumentCaptor.getValue();
         String queryString = query.toString();
@@ -129,19 +167,19 @@ public class RecipeServiceTest {
     public void whenCategoryFilterConditionsIsPresent_shouldReturnRecipesFilteredByCategory() {
         recipeService.filterCondition(null,"VEGETARIAN", null, null, null, null);
 
-        verify(mongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
 
         Query query = queryArgumentCaptor.getValue();
         String queryString = query.toString();
         assertThat(queryString).contains("\"category\"");
-        assertThat(queryString).contains("VEGETARIAN");
+        assertThat(queryString).contains("vegetarian");
     }
 
     @Test
     public void whenServingsFilterConditionsIsPresent_shouldReturnRecipesFilteredByServings() {
         recipeService.filterCondition(null,null, 2, null, null, null);
 
-        verify(mongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
 
         Query query = queryArgumentCaptor.getValue();
         String queryString = query.toString();
@@ -154,7 +192,7 @@ public class RecipeServiceTest {
     public void whenIncludeIngredientsFilterConditionsIsPresent_shouldReturnRecipesFilteredByIngredients() {
         recipeService.filterCondition(null,null, null, "onions", null, null);
 
-        verify(mongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
 
         Query query = queryArgumentCaptor.getValue();
         String queryString = query.toString();
@@ -166,7 +204,7 @@ public class RecipeServiceTest {
     public void whenExcludeIngredientsFilterConditionsIsPresent_shouldReturnRecipesFilteredByExcludedIngredients() {
         recipeService.filterCondition(null,null, null, null, "pepper", null);
 
-        verify(mongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
 
         Query query = queryArgumentCaptor.getValue();
         String queryString = query.toString();
@@ -178,7 +216,7 @@ public class RecipeServiceTest {
     public void whenInstructionsFilterConditionsIsPresent_shouldReturnRecipesFilteredByInstructions() {
         recipeService.filterCondition(null,null, null, null, null, "bowl");
 
-        verify(mongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
 
         Query query = queryArgumentCaptor.getValue();
         String queryString = query.toString();
@@ -186,6 +224,94 @@ public class RecipeServiceTest {
         assertThat(queryString).contains("bowl");
     }
 
+    @Test
+    public void whenCountWithoutFilters_shouldUseEstimatedCount() {
+        when(readMongoTemplate.execute(eq(Recipe.class), any(CollectionCallback.class))).thenReturn(42L);
+
+        var count = recipeService.count(null, null, null, null, null, null);
+
+        assertThat(count).isEqualTo(new RecipeCountDTO(42, true));
+        verify(readMongoTemplate, never()).count(any(Query.class), eq(Recipe.class));
+    }
+
+    @Test
+    public void whenCountWithFilters_shouldCountMatchingDocuments() {
+        when(readMongoTemplate.count(any(Query.class), eq(Recipe.class))).thenReturn(3L);
+
+        var count = recipeService.count(null, "VEGETARIAN", 2, null, null, null);
+
+        assertThat(count).isEqualTo(new RecipeCountDTO(3, false));
+        verify(readMongoTemplate, times(1)).count(queryArgumentCaptor.capture(), eq(Recipe.class));
+        assertThat(queryArgumentCaptor.getValue().toString()).contains("\"servings\"", "vegetarian");
+    }
+
+    @Test
+    public void whenExistsWithFilters_shouldFetchAtMostOneId() {
+        when(readMongoTemplate.find(any(Query.class), eq(Recipe.class))).thenReturn(List.of(new Recipe()));
+
+        assertThat(recipeService.exists("couscous", null, null, null, null, null).exists()).isTrue();
+
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        Query query = queryArgumentCaptor.getValue();
+        assertThat(query.getLimit()).isEqualTo(1);
+        assertThat(query.getFieldsObject()).containsOnlyKeys("id");
+    }
+
+    @Test
+    public void whenFindByPantry_shouldReadMatchedRecipesFromReadTemplate() {
+        when(pantryIndex.match(Set.of("eggs", "feta cheese"), 4)).thenReturn(List.of(
+                new PantryIndex.Match("deleted", 2, 2),
+                new PantryIndex.Match("omelette", 2, 2),
+                new PantryIndex.Match("salad", 1, 4)));
+        when(readMongoTemplate.find(any(Query.class), eq(Recipe.class))).thenReturn(List.of(
+                Recipe.builder().id("omelette").ingredients(List.of("3 eggs", "50g feta cheese")).build(),
+                Recipe.builder().id("salad").ingredients(List.of("couscous", "feta cheese", "pesto", "eggs")).build()));
+
+        var recipes = recipeService.findByPantry(List.of("eggs", "feta cheese"), 2);
+
+        assertThat(recipes).extracting(r -> r.recipe().getId()).containsExactly("omelette", "salad");
+        verify(readMongoTemplate, times(1)).find(queryArgumentCaptor.capture(), eq(Recipe.class));
+        assertThat(queryArgumentCaptor.getValue().getFieldsObject()).containsEntry("lshBuckets", 0);
+        verifyNoInteractions(recipeRepository);
+    }
+
+    @Test
+    public void whenFindByPantryWithHugeLimit_shouldCapMatches() {
+        when(pantryIndex.match(Set.of("eggs"), 200)).thenReturn(List.of());
+        when(readMongoTemplate.find(any(Query.class), eq(Recipe.class))).thenReturn(List.of());
+
+        assertThat(recipeService.findByPantry(List.of("eggs"), 10_000_000)).isEmpty();
+    }
+
+    @Test
+    public void whenIdenticalFilterQueriesRunConcurrently_shouldShareOneQuery() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(readMongoTemplate.find(any(Query.class), eq(Recipe.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(Recipe.builder().name("Quick chilli").build());
+        });
+
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var leader = executor.submit(() -> recipeService.filterCondition("chilli", "VEGETARIAN", null, null, null, null));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            var follower = executor.submit(() -> recipeService.filterCondition("chilli", "vegetarian", null, "", null, null));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (recipeQueryCoalescer.coalescedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(leader.get(5, TimeUnit.SECONDS));
+            verify(readMongoTemplate, times(1)).find(any(Query.class), eq(Recipe.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private RecipeDTO getRecipeDTO(String name, String instructions, String category, Integer servings, String[] ingredients) {
         return RecipeDTO.builder()
                 .name(name)
@@ -0,0 +1,59 @@
+package com.abn.recipes.recipe.service;
+
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.RecipeSignatureBackfill;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RecipeSignatureBackfillTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private BulkWriteResult bulkWriteResult;
+
+    @Captor
+    private ArgumentCaptor<Query> queryArgumentCaptor;
+
+    @Test
+    public void whenBackfill_shouldOnlyUpdateRecipesStillOutdated() {
+        var recipe = Recipe.builder().id("salad").ingredients(List.of("100g couscous", "2 spring onions")).build();
+        when(mongoTemplate.stream(any(Query.class), eq(Recipe.class))).thenReturn(PantryIndexTest.stream(recipe));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Recipe.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getModifiedCount()).thenReturn(1);
+
+        var backfill = new RecipeSignatureBackfill(mongoTemplate, true, 500);
+
+        assertThat(backfill.backfill()).isEqualTo(1);
+        verify(bulkOperations).updateOne(queryArgumentCaptor.capture(), any(Update.class));
+        var filter = queryArgumentCaptor.getValue().getQueryObject();
+        assertThat(filter).containsEntry("id", "salad");
+        assertThat(filter.get("$and", List.class)).containsExactly(new Document("$or", List.of(
+                new Document("lshBuckets", new Document("$exists", false)),
+                new Document("minHash", new Document("$exists", true)))));
+    }
+}
@@ -0,0 +1,54 @@
+package com.abn.recipes.recipe.service;
+
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.IngredientNormalizer;
+import com.abn.recipes.service.RecipeSignatures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecipeSignaturesTest {
+
+    @Test
+    public void whenNormalizeIngredient_shouldDropQuantitiesAndPreparation() {
+        assertThat(IngredientNormalizer.normalize("50g feta cheese, cubed")).isEqualTo("feta cheese");
+        assertThat(IngredientNormalizer.normalize("2 spring onions")).isEqualTo("spring onions");
+        assertThat(IngredientNormalizer.normalize("400g can kidney beans")).isEqualTo("kidney beans");
+        assertThat(IngredientNormalizer.normalize("200ml hot low salt vegetable stock (from a cube is fine)"))
+                .isEqualTo("hot low salt vegetable stock");
+        assertThat(IngredientNormalizer.normalize("½ cucumber")).isEqualTo("cucumber");
+    }
+
+    @Test
+    public void whenSignRecipe_shouldStoreBands() {
+        var recipe = Recipe.builder().ingredients(List.of("100g couscous", "2 spring onions")).build();
+
+        RecipeSignatures.sign(recipe);
+
+        assertThat(recipe.getLshBuckets()).hasSize(RecipeSignatures.BANDS);
+    }
+
+    @Test
+    public void whenSameIngredientsWithDifferentQuantities_shouldHaveSameSignature() {
+        var a = RecipeSignatures.minHash(IngredientNormalizer.normalize(List.of("100g couscous", "2 spring onions")));
+        var b = RecipeSignatures.minHash(IngredientNormalizer.normalize(List.of("200g couscous", "3 spring onions")));
+
+        assertThat(a).isEqualTo(b);
+        assertThat(RecipeSignatures.lshBuckets(a)).isEqualTo(RecipeSignatures.lshBuckets(b));
+    }
+
+    @Test
+    public void whenSetsOverlap_shouldShareBands() {
+        var base = Set.of("couscous", "spring onions", "feta cheese", "pesto", "pine nuts", "cucumber", "red pepper", "vegetable stock", "lemon");
+        var similar = Set.of("couscous", "spring onions", "feta cheese", "pesto", "pine nuts", "cucumber", "red pepper", "vegetable stock", "mint");
+        var different = Set.of("chorizo", "kidney beans", "chopped tomatoes", "cumin");
+
+        assertThat(RecipeSignatures.jaccard(base, similar)).isEqualTo(0.8);
+        assertThat(RecipeSignatures.lshBuckets(RecipeSignatures.minHash(base)))
+                .containsAnyElementsOf(RecipeSignatures.lshBuckets(RecipeSignatures.minHash(similar)))
+                .doesNotContainAnyElementsOf(RecipeSignatures.lshBuckets(RecipeSignatures.minHash(different)));
+    }
+}
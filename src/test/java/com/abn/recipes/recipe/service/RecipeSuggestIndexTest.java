@@ -0,0 +1,137 @@
+package com.abn.recipes.recipe.service;
+
+import com.abn.recipes.dto.SuggestionDTO;
+import com.abn.recipes.entity.Recipe;
+import com.abn.recipes.service.RecipeSuggestIndex;
+import com.abn.recipes.service.event.RecipeDeletedEvent;
+import com.abn.recipes.service.event.RecipeSavedEvent;
+import com.abn.recipes.service.exception.IndexWarmingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RecipeSuggestIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private RecipeSuggestIndex recipeSuggestIndex;
+
+    private Recipe salad;
+
+    @BeforeEach
+    public void setUp() {
+        recipeSuggestIndex = new RecipeSuggestIndex(mongoTemplate, Duration.ofMinutes(5), 1000);
+        when(mongoTemplate.stream(any(Query.class), eq(Recipe.class))).thenReturn(PantryIndexTest.stream());
+        recipeSuggestIndex.refresh();
+        salad = getRecipe("10-minute couscous salad", "100g couscous", "2 spring onions");
+        recipeSuggestIndex.onSaved(new RecipeSavedEvent(null, salad));
+        recipeSuggestIndex.onSaved(new RecipeSavedEvent(null, getRecipe("Couscous with chorizo", "couscous", "100g chorizo")));
+        recipeSuggestIndex.onSaved(new RecipeSavedEvent(null, getRecipe("Quick chilli", "100g chorizo", "400g can kidney beans")));
+    }
+
+    @Test
+    public void whenSuggestPrefix_shouldReturnCompletionsByPopularity() {
+        var suggestions = recipeSuggestIndex.suggest("Cou", 10);
+
+        assertThat(suggestions).containsExactly(
+                new SuggestionDTO("couscous", SuggestionDTO.Type.INGREDIENT, 2),
+                new SuggestionDTO("Couscous with chorizo", SuggestionDTO.Type.NAME, 1));
+    }
+
+    @Test
+    public void whenSuggestWithLimit_shouldReturnAtMostLimit() {
+        assertThat(recipeSuggestIndex.suggest("c", 2)).hasSize(2);
+        assertThat(recipeSuggestIndex.suggest("xyz", 10)).isEmpty();
+        assertThat(recipeSuggestIndex.suggest(" ", 10)).isEmpty();
+    }
+
+    @Test
+    public void whenRecipeUpdatedOrDeleted_shouldDropStaleCompletions() {
+        var renamed = getRecipe("Spring salad", "2 spring onions");
+        recipeSuggestIndex.onSaved(new RecipeSavedEvent(salad, renamed));
+        recipeSuggestIndex.onDeleted(new RecipeDeletedEvent(getRecipe("Quick chilli", "100g chorizo", "400g can kidney beans")));
+
+        assertThat(recipeSuggestIndex.suggest("10-", 10)).isEmpty();
+        assertThat(recipeSuggestIndex.suggest("couscous", 10)).extracting(SuggestionDTO::weight).containsExactly(1L, 1L);
+        assertThat(recipeSuggestIndex.suggest("q", 10)).isEmpty();
+        assertThat(recipeSuggestIndex.suggest("spring", 10)).extracting(SuggestionDTO::text)
+                .containsExactly("spring onions", "Spring salad");
+    }
+
+    @Test
+    public void whenRefreshed_shouldServeCatalogAndLaterWrites() {
+        when(mongoTemplate.stream(any(Query.class), eq(Recipe.class))).thenReturn(PantryIndexTest.stream(
+                getRecipe("Couscous with chorizo", "couscous", "100g chorizo"),
+                getRecipe("Chorizo hash", "100g chorizo", "2 potatoes"),
+                getRecipe("Chickpea curry", "400g can chickpeas")));
+        recipeSuggestIndex.refresh();
+
+        assertThat(recipeSuggestIndex.suggest("c", 3)).containsExactly(
+                new SuggestionDTO("chorizo", SuggestionDTO.Type.INGREDIENT, 2),
+                new SuggestionDTO("Chickpea curry", SuggestionDTO.Type.NAME, 1),
+                new SuggestionDTO("chickpeas", SuggestionDTO.Type.INGREDIENT, 1));
+        assertThat(recipeSuggestIndex.suggest("cho", 10)).extracting(SuggestionDTO::text)
+                .containsExactly("chorizo", "Chorizo hash");
+
+        recipeSuggestIndex.onSaved(new RecipeSavedEvent(null, getRecipe("Chorizo stew", "100g chorizo")));
+
+        assertThat(recipeSuggestIndex.suggest("ch", 2)).containsExactly(
+                new SuggestionDTO("chorizo", SuggestionDTO.Type.INGREDIENT, 3),
+                new SuggestionDTO("Chickpea curry", SuggestionDTO.Type.NAME, 1));
+        assertThat(recipeSuggestIndex.suggest("chorizo s", 10)).extracting(SuggestionDTO::text)
+                .containsExactly("Chorizo stew");
+        assertThat(recipeSuggestIndex.suggest("10-", 10)).isEmpty();
+    }
+
+    @Test
+    public void whenManyChanges_shouldFoldThemIntoTheTable() throws InterruptedException {
+        var index = new RecipeSuggestIndex(mongoTemplate, Duration.ofMinutes(5), 14);
+        index.refresh();
+        for (int i = 0; i < 12; i++) {
+            index.onSaved(new RecipeSavedEvent(null, getRecipe("Couscous bowl " + i, "couscous", "chorizo")));
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (index.changeCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(index.changeCount()).isZero();
+
+        index.onSaved(new RecipeSavedEvent(null, getRecipe("Couscous bowl 11", "couscous", "chorizo")));
+        index.onDeleted(new RecipeDeletedEvent(getRecipe("Couscous bowl 3", "couscous", "chorizo")));
+
+        var suggestions = index.suggest("cou", 10);
+        assertThat(suggestions).hasSize(10);
+        assertThat(suggestions.get(0)).isEqualTo(new SuggestionDTO("couscous", SuggestionDTO.Type.INGREDIENT, 12));
+        assertThat(suggestions.get(1)).isEqualTo(new SuggestionDTO("Couscous bowl 11", SuggestionDTO.Type.NAME, 2));
+        assertThat(suggestions).extracting(SuggestionDTO::text).doesNotContain("Couscous bowl 3");
+        assertThat(index.suggest("chorizo", 10)).containsExactly(
+                new SuggestionDTO("chorizo", SuggestionDTO.Type.INGREDIENT, 12));
+    }
+
+    @Test
+    public void whenNotLoaded_shouldReportWarming() {
+        var index = new RecipeSuggestIndex(mongoTemplate, Duration.ofMinutes(5), 1000);
+
+        assertThatThrownBy(() -> index.suggest("cou", 10)).isInstanceOf(IndexWarmingException.class);
+    }
+
+    private Recipe getRecipe(String name, String... ingredients) {
+        return Recipe.builder().name(name).ingredients(List.of(ingredients)).build();
+    }
+}